@@ -0,0 +1,175 @@
+package com.dgmltn.multiseekbar;
+
+import android.app.Instrumentation;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Picture;
+import android.os.Bundle;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+import android.view.View;
+
+import com.dgmltn.multiseekbar.internal.SeekBarMetrics;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Locale;
+
+/**
+ * Times the three {@link PathSeekBar#setRangeRendering range renderings} on a device, from
+ * the drawConnectingLines histogram of the bar's metrics.
+ * <p>
+ * Two ranges are shown while one thumb is dragged, as in a typical scrub: one range moves
+ * every frame, the other stays put. Each case is drawn into a software bitmap, which pays for
+ * rasterizing the ranges, and into a recording {@link Picture}, which costs what the UI thread
+ * pays on a hardware accelerated window. Recording doesn't rasterize anything, DASH's stroke
+ * of the whole path per range least of all, so the fastest mode is picked from the bitmap
+ * timings. The recordings are also played back into the bitmap, timing whole frames; what
+ * the render thread pays to draw them on the GPU is not measured.
+ * <p>
+ * Results are logged under {@value #TAG} and reported as instrumentation status, e.g.
+ * <pre>
+ * ./gradlew :multi-seek-bar:connectedAndroidTest
+ * adb logcat -s RangeRenderingBenchmark
+ * </pre>
+ */
+@RunWith(AndroidJUnit4.class)
+public class RangeRenderingBenchmark {
+
+	private static final String TAG = "RangeRenderingBenchmark";
+
+	private static final int WIDTH = 1080;
+	private static final int HEIGHT = 400;
+	private static final int WARMUP_FRAMES = 100;
+	private static final int FRAMES = 1000;
+	private static final int MAX = 1000;
+
+	private static final int[] MODES = {
+		PathSeekBar.RANGE_RENDERING_SEGMENT,
+		PathSeekBar.RANGE_RENDERING_CACHED_SEGMENT,
+		PathSeekBar.RANGE_RENDERING_DASH,
+	};
+	private static final String[] MODE_NAMES = { "SEGMENT", "CACHED_SEGMENT", "DASH" };
+
+	// The demo's two curves
+	private static final String SIMPLE_PATH = "M 0,2 C 3,2 0,0 6,0 C 12,0 9,2 12,2";
+
+	@Test
+	public void simplePath() {
+		run("simple", SIMPLE_PATH);
+	}
+
+	@Test
+	public void complexPath() {
+		run("complex", wave(200));
+	}
+
+	/**
+	 * A wave of {@code curves} cubic curves.
+	 */
+	private static String wave(int curves) {
+		StringBuilder sb = new StringBuilder("M 0,1");
+		for (int i = 0; i < curves; i++) {
+			float y = i % 2 == 0 ? 0f : 2f;
+			sb.append(String.format(Locale.US, " C %d.3,%.0f %d.7,%.0f %d,1", i, y, i, y, i + 1));
+		}
+		return sb.toString();
+	}
+
+	private void run(final String name, final String path) {
+		final Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+		final Bundle results = new Bundle();
+		instrumentation.runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				Context context = InstrumentationRegistry.getTargetContext();
+				Bitmap bitmap = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888);
+				Canvas software = new Canvas(bitmap);
+				Picture picture = new Picture();
+
+				long best = Long.MAX_VALUE;
+				String winner = null;
+				long[] playback = new long[1];
+				for (int m = 0; m < MODES.length; m++) {
+					PathSeekBar bar = createBar(context, path, MODES[m]);
+					long rasterized = time(bar, null, software, null);
+					long recorded = time(bar, picture, software, playback);
+					report(results, name + "." + MODE_NAMES[m] + ".bitmap", rasterized);
+					report(results, name + "." + MODE_NAMES[m] + ".picture", recorded);
+					report(results, name + "." + MODE_NAMES[m] + ".playback", playback[0]);
+					if (rasterized < best) {
+						best = rasterized;
+						winner = MODE_NAMES[m];
+					}
+				}
+				Log.i(TAG, name + ": fastest to rasterize is " + winner);
+				results.putString(name + ".fastest", winner);
+				bitmap.recycle();
+			}
+		});
+		instrumentation.sendStatus(0, results);
+	}
+
+	private static PathSeekBar createBar(Context context, String path, int mode) {
+		PathSeekBar bar = new PathSeekBar(context, null);
+		for (int i = 0; i < 4; i++) {
+			ThumbView thumb = new ThumbView(context, null);
+			thumb.addOnValueChangedListener(bar);
+			bar.addView(thumb);
+		}
+		bar.setMax(MAX);
+		bar.setPath(path);
+		bar.setRangeRendering(mode);
+		bar.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+			View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+		bar.layout(0, 0, WIDTH, HEIGHT);
+		bar.setValues(new float[] { 100f, 300f, 600f, 900f });
+		return bar;
+	}
+
+	/**
+	 * Drags the second thumb back and forth for a number of frames, drawing each one into
+	 * {@code picture} if it isn't null, else into {@code canvas}. Recorded frames are played
+	 * back into {@code canvas}.
+	 *
+	 * @param playback receives the mean time to play a recorded frame back, in nanoseconds
+	 * @return the mean drawConnectingLines time, in nanoseconds
+	 */
+	private static long time(PathSeekBar bar, Picture picture, Canvas canvas, long[] playback) {
+		bar.setMetricsEnabled(false);
+		long playbackNanos = 0;
+		for (int frame = 0; frame < WARMUP_FRAMES + FRAMES; frame++) {
+			if (frame == WARMUP_FRAMES) {
+				bar.setMetricsEnabled(true);
+			}
+			// 150..450 and back, about a pixel per frame
+			int t = frame % 600;
+			bar.getChildAt(1).setValue(150 + (t < 300 ? t : 600 - t));
+			if (picture != null) {
+				bar.draw(picture.beginRecording(WIDTH, HEIGHT));
+				picture.endRecording();
+				long start = System.nanoTime();
+				picture.draw(canvas);
+				if (frame >= WARMUP_FRAMES) {
+					playbackNanos += System.nanoTime() - start;
+				}
+			}
+			else {
+				bar.draw(canvas);
+			}
+		}
+		if (playback != null) {
+			playback[0] = playbackNanos / FRAMES;
+		}
+		SeekBarMetrics metrics = bar.getMetrics(new SeekBarMetrics());
+		return metrics.drawConnectingLines.getMeanNanos();
+	}
+
+	private static void report(Bundle results, String key, long meanNanos) {
+		Log.i(TAG, String.format(Locale.US, "%s: %.1fµs per frame", key, meanNanos / 1000f));
+		results.putLong(key, meanNanos);
+	}
+}
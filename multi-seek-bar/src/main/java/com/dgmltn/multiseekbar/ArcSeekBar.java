@@ -4,27 +4,66 @@ import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.Canvas;
 import android.graphics.Paint;
+import android.graphics.Path;
 import android.graphics.PointF;
 import android.graphics.RectF;
+import android.support.annotation.IntDef;
 import android.util.AttributeSet;
 
 import com.dgmltn.multiseekbar.internal.AbsMultiSeekBar;
 import com.dgmltn.multiseekbar.internal.ArcUtils;
+import com.dgmltn.multiseekbar.internal.FastTrig;
+import com.dgmltn.multiseekbar.internal.SortedThumbIndex;
+import com.dgmltn.multiseekbar.internal.ThumbHitIndex;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
 
 /**
  * Created by doug on 11/2/15.
  */
 public class ArcSeekBar extends AbsMultiSeekBar {
 
+	@Retention(RetentionPolicy.SOURCE)
+	@IntDef({ ACCURACY_EXACT, ACCURACY_FAST })
+	public @interface Accuracy {
+	}
+
+	/**
+	 * Angles and positions are computed in double precision with {@link Math}.
+	 */
+	public static final int ACCURACY_EXACT = 0;
+	/**
+	 * Angles and positions are computed with {@link FastTrig}: touch angles within
+	 * {@link FastTrig#ATAN2_MAX_ERROR_DEGREES}, positions within
+	 * {@link FastTrig#SIN_COS_MAX_ERROR} times the radius. The drawn arcs stay exact.
+	 */
+	public static final int ACCURACY_FAST = 1;
+
 	private PointF mCenter = new PointF();
 	private float mRadius = 1f;
 	private RectF mBounds = new RectF();
-	private PointF mTmpPointF = new PointF();
+
+	// What mCenter, mRadius and mBounds were computed from: width, height, the four paddings,
+	// arc start and arc sweep
+	private final int[] mLayoutKey = new int[8];
+	private boolean mLayoutValid = false;
+
+	// The background arc, rebuilt only when its geometry changes
+	private final Path mArcPath = new Path();
+	private boolean mArcPathDirty = true;
+	private float mArcTolerance = DEFAULT_ARC_TOLERANCE_PX;
+
+	private static final float DEFAULT_ARC_TOLERANCE_PX = 0.25f;
 
 	private int mArcStart = 150;
 	private int mArcSweep = 240;
 	private boolean mRotateThumbs = false;
 
+	@Accuracy
+	private int mAccuracy = ACCURACY_EXACT;
+	private final FastTrig.SinCosTable mSinCos = new FastTrig.SinCosTable();
+
 	public ArcSeekBar(Context context, AttributeSet attrs) {
 		super(context, attrs);
 
@@ -33,26 +72,18 @@ public class ArcSeekBar extends AbsMultiSeekBar {
 			mArcStart = ta.getInt(R.styleable.ArcSeekBar_arc_start, mArcStart);
 			mArcSweep = ta.getInt(R.styleable.ArcSeekBar_arc_sweep, mArcSweep);
 			mRotateThumbs = ta.getBoolean(R.styleable.ArcSeekBar_rotate_thumbs, mRotateThumbs);
+			mAccuracy = validateAccuracy(ta.getInt(R.styleable.ArcSeekBar_accuracy, mAccuracy));
 			ta.recycle();
 		}
 	}
 
 	@Override
 	protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
-		float pw = getWidth() - getPaddingLeft() - getPaddingRight();
-		float ph = getHeight() - getPaddingTop() - getPaddingBottom();
-
-		calculateBounds();
-
-		float scale = Math.min(pw / mBounds.width(), ph / mBounds.height());
-		mRadius *= scale;
-
-		calculateBounds();
-
-		float dx = -mBounds.left + pw / 2 - mBounds.width() / 2 + getPaddingLeft();
-		float dy = -mBounds.top + ph / 2 - mBounds.height() / 2 + getPaddingTop();
-		mCenter.offset(dx, dy);
-		mBounds.offset(dx, dy);
+		if (updateLayoutKey()) {
+			calculateGeometry();
+			mArcPathDirty = true;
+			invalidateTrack();
+		}
 
 		// super.onLayout layout-s the children, which depend on mCenter and mBounds.
 		// So make sure to call super.onLayout after these have been calculated.
@@ -85,56 +116,180 @@ public class ArcSeekBar extends AbsMultiSeekBar {
 		mRotateThumbs = rotateThumbs;
 	}
 
-	private void calculateBounds() {
-		getNearestPointOnBar(mTmpPointF, mCenter.x - mRadius, mCenter.y);
-		mBounds.set(mTmpPointF.x, mTmpPointF.y, mTmpPointF.x, mTmpPointF.y);
+	/**
+	 * Sets how far, in pixels, the drawn arcs may stray from the true circle. Arcs are drawn
+	 * as Bézier curves, split into as few pieces as this allows for the current radius.
+	 */
+	public void setArcTolerance(float px) {
+		mArcTolerance = Math.max(0f, px);
+		mArcPathDirty = true;
+		invalidateTrack();
+	}
 
-		getNearestPointOnBar(mTmpPointF, mCenter.x + mRadius, mCenter.y);
-		mBounds.union(mTmpPointF.x, mTmpPointF.y);
+	public float getArcTolerance() {
+		return mArcTolerance;
+	}
 
-		getNearestPointOnBar(mTmpPointF, mCenter.x, mCenter.y - mRadius);
-		mBounds.union(mTmpPointF.x, mTmpPointF.y);
+	/**
+	 * Chooses how angles and positions on the arc are computed: {@link #ACCURACY_EXACT} (the
+	 * default) or {@link #ACCURACY_FAST}.
+	 */
+	public void setAccuracy(@Accuracy int accuracy) {
+		mAccuracy = validateAccuracy(accuracy);
+		requestLayout();
+	}
 
-		getNearestPointOnBar(mTmpPointF, mCenter.x, mCenter.y + mRadius);
-		mBounds.union(mTmpPointF.x, mTmpPointF.y);
+	@Accuracy
+	public int getAccuracy() {
+		return mAccuracy;
 	}
 
-	private void getNearestPointOnBar(PointF out, float x, float y) {
-		getPointOnBar(out, getNearestBarValue(x, y));
+	@Accuracy
+	private static int validateAccuracy(int a) {
+		return a == ACCURACY_FAST ? a : ACCURACY_EXACT;
+	}
+
+	/**
+	 * Records the inputs of the arc's geometry.
+	 *
+	 * @return true if they changed since the geometry was last computed
+	 */
+	private boolean updateLayoutKey() {
+		int[] key = mLayoutKey;
+		int width = getWidth();
+		int height = getHeight();
+		int paddingLeft = getPaddingLeft();
+		int paddingTop = getPaddingTop();
+		int paddingRight = getPaddingRight();
+		int paddingBottom = getPaddingBottom();
+		if (mLayoutValid
+			&& key[0] == width && key[1] == height
+			&& key[2] == paddingLeft && key[3] == paddingTop
+			&& key[4] == paddingRight && key[5] == paddingBottom
+			&& key[6] == mArcStart && key[7] == mArcSweep) {
+			return false;
+		}
+		key[0] = width;
+		key[1] = height;
+		key[2] = paddingLeft;
+		key[3] = paddingTop;
+		key[4] = paddingRight;
+		key[5] = paddingBottom;
+		key[6] = mArcStart;
+		key[7] = mArcSweep;
+		mLayoutValid = true;
+		return true;
+	}
+
+	/**
+	 * Fits the arc in the padded area: finds the bounds of the arc on a unit circle, from its
+	 * end points and the axes it crosses, then scales and centers them.
+	 */
+	private void calculateGeometry() {
+		float pw = getWidth() - getPaddingLeft() - getPaddingRight();
+		float ph = getHeight() - getPaddingTop() - getPaddingBottom();
+
+		float from = Math.min(mArcStart, mArcStart + mArcSweep);
+		float to = Math.max(mArcStart, mArcStart + mArcSweep);
+		double a = Math.toRadians(from);
+		double b = Math.toRadians(to);
+		float left = (float) Math.min(Math.cos(a), Math.cos(b));
+		float right = (float) Math.max(Math.cos(a), Math.cos(b));
+		float top = (float) Math.min(Math.sin(a), Math.sin(b));
+		float bottom = (float) Math.max(Math.sin(a), Math.sin(b));
+
+		// Each multiple of 90° in the sweep is an extreme: 0° right, 90° bottom, and so on
+		for (int axis = (int) Math.ceil(from / 90f); axis * 90f <= to && axis * 90f < from + 360f; axis++) {
+			switch (((axis % 4) + 4) % 4) {
+			case 0:
+				right = 1f;
+				break;
+			case 1:
+				bottom = 1f;
+				break;
+			case 2:
+				left = -1f;
+				break;
+			default:
+				top = -1f;
+				break;
+			}
+		}
+
+		float width = right - left;
+		float height = bottom - top;
+		if (width > 0f && height > 0f) {
+			mRadius = Math.min(pw / width, ph / height);
+		}
+		else if (width > 0f) {
+			mRadius = pw / width;
+		}
+		else if (height > 0f) {
+			mRadius = ph / height;
+		}
+		else {
+			mRadius = Math.min(pw, ph) / 2f;
+		}
+		mRadius = Math.max(mRadius, 0f);
+
+		mCenter.set(
+			getPaddingLeft() + pw / 2 - mRadius * (left + right) / 2,
+			getPaddingTop() + ph / 2 - mRadius * (top + bottom) / 2);
+		mBounds.set(
+			mCenter.x + mRadius * left, mCenter.y + mRadius * top,
+			mCenter.x + mRadius * right, mCenter.y + mRadius * bottom);
 	}
 
 	@Override
-	protected void drawConnectingLine(Canvas canvas, float from, float to, Paint paint) {
-		float angle1 = (from / max) * mArcSweep;
-		float angle2 = (to / max) * mArcSweep;
+	protected ThumbHitIndex createHitIndex(float touchRadius) {
+		// The two ends meet on a full circle, and come close on a nearly full one
+		return new SortedThumbIndex(true);
+	}
+
+	@Override
+	protected void addConnectingLine(Path path, float from, float to) {
+		float angle1 = valueToFraction(from) * mArcSweep;
+		float angle2 = valueToFraction(to) * mArcSweep;
 		float sweep = angle2 - angle1;
-		ArcUtils.drawArc(canvas, mCenter, mRadius, angle1 + mArcStart, sweep, paint);
+		ArcUtils.createBezierArcDegrees(mCenter, mRadius, angle1 + mArcStart, sweep, mArcTolerance, path);
 	}
 
 	@Override
 	protected float getNearestBarValue(float x, float y) {
 		float normalized = (float) getNormalizedAngle(x, y);
-		return normalized / mArcSweep * max;
+		return fractionToValue(normalized / mArcSweep);
 	}
 
 	@Override
 	protected void getPointOnBar(PointF out, float value) {
-		float normalized = (value / max) * mArcSweep;
-		out.set(ArcUtils.pointFromAngleDegrees(mCenter, mRadius, normalized + mArcStart));
+		if (mAccuracy == ACCURACY_FAST) {
+			mSinCos.set(mArcStart, mArcSweep);
+			mSinCos.getPoint(valueToFraction(value), mCenter.x, mCenter.y, mRadius, out);
+			return;
+		}
+		float normalized = valueToFraction(value) * mArcSweep;
+		ArcUtils.pointFromAngleDegrees(mCenter, mRadius, normalized + mArcStart, out);
 	}
 
 	@Override
 	protected void drawBar(Canvas canvas, Paint paint) {
-		ArcUtils.drawArc(canvas, mCenter, mRadius, mArcStart, mArcSweep, paint);
+		if (mArcSweep == 0) {
+			ArcUtils.drawArc(canvas, mCenter, mRadius, mArcStart, mArcSweep, paint);
+			return;
+		}
+		if (mArcPathDirty) {
+			mArcPath.rewind();
+			ArcUtils.createBezierArcDegrees(mCenter, mRadius, mArcStart, mArcSweep, mArcTolerance, mArcPath);
+			mArcPathDirty = false;
+		}
+		canvas.drawPath(mArcPath, paint);
 	}
 
 	@Override
-	public void onValueChange(ThumbView thumb, float oldVal, float newVal) {
-		super.onValueChange(thumb, oldVal, newVal);
+	protected void onThumbPlaced(ThumbView thumb, float value, PointF position) {
 		float angle = 0f;
 		if (mRotateThumbs) {
-			getPointOnBar(mTmpPointF, newVal);
-			angle = (float) getAngle(mTmpPointF.x, mTmpPointF.y) + 90f;
+			angle = (float) getAngle(position.x, position.y) + 90f;
 		}
 		thumb.setRotation(angle);
 	}
@@ -148,6 +303,9 @@ public class ArcSeekBar extends AbsMultiSeekBar {
 	 * @return
 	 */
 	private double getAngle(float x, float y) {
+		if (mAccuracy == ACCURACY_FAST) {
+			return FastTrig.atan2Degrees(y - mCenter.y, x - mCenter.x);
+		}
 		return Math.toDegrees(Math.atan2(y - mCenter.y, x - mCenter.x));
 	}
 
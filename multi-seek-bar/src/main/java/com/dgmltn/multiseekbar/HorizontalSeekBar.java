@@ -1,24 +1,90 @@
 package com.dgmltn.multiseekbar;
 
 import android.content.Context;
+import android.content.res.TypedArray;
 import android.graphics.Canvas;
 import android.graphics.Paint;
+import android.graphics.Path;
 import android.graphics.PointF;
+import android.support.annotation.IntDef;
 import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
+import android.view.VelocityTracker;
+import android.view.ViewConfiguration;
+import android.widget.OverScroller;
 
 import com.dgmltn.multiseekbar.internal.AbsMultiSeekBar;
+import com.dgmltn.multiseekbar.internal.TimelineViewport;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
 
 /**
  * Created by doug on 11/1/15.
  */
-public class HorizontalSeekBar extends AbsMultiSeekBar {
+public class HorizontalSeekBar extends AbsMultiSeekBar implements Waveform.OnWaveformChangedListener {
+
+	@Retention(RetentionPolicy.SOURCE)
+	@IntDef({ TRACK_STYLE_BAR, TRACK_STYLE_WAVEFORM, TRACK_STYLE_HISTOGRAM })
+	public @interface TrackStyle {
+	}
+
+	/**
+	 * The track is a flat bar.
+	 */
+	public static final int TRACK_STYLE_BAR = 0;
+	/**
+	 * The track is the waveform: each pixel column spans the lowest to the highest sample
+	 * under it, around the middle of the bar.
+	 */
+	public static final int TRACK_STYLE_WAVEFORM = 1;
+	/**
+	 * The track is a histogram of the waveform: each pixel column rises from the bottom of
+	 * the bar to the largest magnitude under it.
+	 */
+	public static final int TRACK_STYLE_HISTOGRAM = 2;
 
 	private int mLeftX;
 	private int mRightX;
 	private int mY;
 
+	// Timeline mode; null when off
+	private TimelineViewport mTimeline;
+	private OnViewportChangedListener mOnViewportChangedListener;
+
+	private final ScaleGestureDetector mScaleDetector;
+	private final OverScroller mScroller;
+	private final int mMinFlingVelocity;
+	private final int mMaxFlingVelocity;
+	private VelocityTracker mVelocityTracker;
+	private boolean mPanning = false;
+	private boolean mPanResync = false;
+	private float mLastPanX;
+	private float mLastFocusX;
+	private int mLastFlingX;
+
+	private float[] mTickPoints = new float[0];
+
+	@TrackStyle
+	private int mTrackStyle = TRACK_STYLE_BAR;
+	private Waveform mWaveform;
+	private Paint mWaveformPaint;
+	private float[] mWaveformLines = new float[0];
+	private final float[] mMinMax = new float[2];
+
 	public HorizontalSeekBar(Context context, AttributeSet attrs) {
 		super(context, attrs);
+		if (attrs != null) {
+			TypedArray ta = context.obtainStyledAttributes(attrs, R.styleable.HorizontalSeekBar, 0, 0);
+			mTrackStyle = validateTrackStyle(ta.getInt(R.styleable.HorizontalSeekBar_track_style, mTrackStyle));
+			ta.recycle();
+		}
+		mScaleDetector = new ScaleGestureDetector(context, mScaleListener);
+		mScroller = new OverScroller(context);
+		ViewConfiguration vc = ViewConfiguration.get(context);
+		mMinFlingVelocity = vc.getScaledMinimumFlingVelocity();
+		mMaxFlingVelocity = vc.getScaledMaximumFlingVelocity();
 	}
 
 	@Override
@@ -26,6 +92,9 @@ public class HorizontalSeekBar extends AbsMultiSeekBar {
 		super.initTrack();
 		mTrackOffPaint.setStyle(Paint.Style.FILL);
 		mTrackOnPaint.setStyle(Paint.Style.FILL);
+		mWaveformPaint = new Paint(mTrackOffPaint);
+		mWaveformPaint.setStyle(Paint.Style.STROKE);
+		mWaveformPaint.setStrokeWidth(1f);
 	}
 
 	@Override
@@ -38,16 +107,38 @@ public class HorizontalSeekBar extends AbsMultiSeekBar {
 	}
 
 	@Override
-	protected void drawConnectingLine(Canvas canvas, float from, float to, Paint paint) {
-		int top = (int)(mY - paint.getStrokeWidth() / 2);
-		int bot = (int)(top + paint.getStrokeWidth());
-		canvas.drawRect(getXOnBar(from), top, getXOnBar(to), bot, paint);
+	protected void addConnectingLine(Path path, float from, float to) {
+		int top = (int)(mY - mTrackOnPaint.getStrokeWidth() / 2);
+		int bot = (int)(top + mTrackOnPaint.getStrokeWidth());
+		float x1 = getXOnBar(from);
+		float x2 = getXOnBar(to);
+		if (mTimeline != null) {
+			// Clip to the visible window
+			x1 = Math.max(mLeftX, Math.min(mRightX, x1));
+			x2 = Math.max(mLeftX, Math.min(mRightX, x2));
+			if (x1 == x2) {
+				return;
+			}
+		}
+		path.addRect(x1, top, x2, bot, Path.Direction.CW);
 	}
 
 	@Override
 	public float getNearestBarValue(float x, float y) {
+		if (mTimeline != null) {
+			return (float) getNearestBarExactValue(x, y);
+		}
+		x = Math.min(mRightX, Math.max(mLeftX, x));
+		return fractionToValue((x - mLeftX) / (mRightX - mLeftX));
+	}
+
+	@Override
+	protected double getNearestBarExactValue(float x, float y) {
+		if (mTimeline == null) {
+			return super.getNearestBarExactValue(x, y);
+		}
 		x = Math.min(mRightX, Math.max(mLeftX, x));
-		return (x - mLeftX) / (mRightX - mLeftX) * max;
+		return mTimeline.fromFraction((double) (x - mLeftX) / (mRightX - mLeftX));
 	}
 
 	@Override
@@ -55,14 +146,480 @@ public class HorizontalSeekBar extends AbsMultiSeekBar {
 		out.set(getXOnBar(value), mY);
 	}
 
+	@Override
+	protected void getThumbPointOnBar(PointF out, ThumbView thumb) {
+		if (mTimeline == null) {
+			super.getThumbPointOnBar(out, thumb);
+			return;
+		}
+		out.set(getXOnBar(thumb.getExactValue()), mY);
+	}
+
 	private float getXOnBar(float value) {
-		return mLeftX + value * (mRightX - mLeftX) / max;
+		if (mTimeline != null) {
+			return getXOnBar((double) value);
+		}
+		return mLeftX + valueToFraction(value) * (mRightX - mLeftX);
+	}
+
+	private float getXOnBar(double timelineValue) {
+		return (float) (mLeftX + mTimeline.toFraction(timelineValue) * (mRightX - mLeftX));
+	}
+
+	@Override
+	protected float valueToFraction(float value) {
+		if (mTimeline != null) {
+			return (float) mTimeline.toFraction(value);
+		}
+		return super.valueToFraction(value);
+	}
+
+	@Override
+	protected float fractionToValue(float fraction) {
+		if (mTimeline != null) {
+			return (float) mTimeline.fromFraction(fraction);
+		}
+		return super.fractionToValue(fraction);
+	}
+
+	@Override
+	protected void onThumbPlaced(ThumbView thumb, float value, PointF position) {
+		if (mTimeline != null) {
+			thumb.setVisibility(mTimeline.contains(thumb.getExactValue()) ? VISIBLE : INVISIBLE);
+		}
 	}
 
 	@Override
 	protected void drawBar(Canvas canvas, Paint paint) {
+		if (mTrackStyle != TRACK_STYLE_BAR && mWaveform != null && mWaveform.getFrameCount() > 0) {
+			drawWaveform(canvas, paint);
+			return;
+		}
 		int top = (int)(mY - paint.getStrokeWidth() / 2);
 		int bot = (int)(top + paint.getStrokeWidth());
 		canvas.drawRect(mLeftX, top, mRightX, bot, paint);
 	}
+
+	// Waveform ////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Chooses what the track looks like: {@link #TRACK_STYLE_BAR} (the default),
+	 * {@link #TRACK_STYLE_WAVEFORM} or {@link #TRACK_STYLE_HISTOGRAM}. The last two need a
+	 * {@link #setWaveform(Waveform) waveform}, and draw a bar until they have one.
+	 */
+	public void setTrackStyle(@TrackStyle int style) {
+		mTrackStyle = validateTrackStyle(style);
+		invalidateTrack();
+	}
+
+	@TrackStyle
+	public int getTrackStyle() {
+		return mTrackStyle;
+	}
+
+	@TrackStyle
+	private static int validateTrackStyle(int style) {
+		return style == TRACK_STYLE_WAVEFORM || style == TRACK_STYLE_HISTOGRAM ? style : TRACK_STYLE_BAR;
+	}
+
+	/**
+	 * Sets the samples drawn by the waveform and histogram track styles. The waveform spans
+	 * the whole bar, from 0 to the max, or the whole timeline in timeline mode. Frames
+	 * appended to it are drawn as they arrive. Pass null to remove it.
+	 */
+	public void setWaveform(Waveform waveform) {
+		if (mWaveform != null) {
+			mWaveform.removeOnWaveformChangedListener(this);
+		}
+		mWaveform = waveform;
+		if (mWaveform != null) {
+			mWaveform.addOnWaveformChangedListener(this);
+		}
+		invalidateTrack();
+	}
+
+	public Waveform getWaveform() {
+		return mWaveform;
+	}
+
+	@Override
+	public void onWaveformChanged(Waveform waveform) {
+		invalidateTrack();
+	}
+
+	@Override
+	protected void onAttachedToWindow() {
+		super.onAttachedToWindow();
+		if (mWaveform != null) {
+			mWaveform.addOnWaveformChangedListener(this);
+		}
+	}
+
+	/**
+	 * Draws one vertical line per pixel column, from the extremes of the frames under it.
+	 * Each column is a single pyramid query, so this reads about as many values as there
+	 * are columns, whatever the zoom.
+	 */
+	private void drawWaveform(Canvas canvas, Paint paint) {
+		int width = mRightX - mLeftX;
+		double domain = mTimeline != null ? mTimeline.getDuration() : max;
+		double start = mTimeline != null ? mTimeline.getStart() : 0d;
+		double span = mTimeline != null ? mTimeline.getSpan() : max;
+		if (width <= 0 || domain <= 0d || span <= 0d) {
+			return;
+		}
+
+		double framesPerUnit = mWaveform.getFrameCount() / domain;
+		float top = getPaddingTop();
+		float bottom = getHeight() - getPaddingBottom();
+		float half = (bottom - top) / 2f;
+		if (mWaveformLines.length < width * 4) {
+			mWaveformLines = new float[width * 4];
+		}
+
+		int count = 0;
+		long from = (long) Math.floor(start * framesPerUnit);
+		for (int c = 0; c < width; c++) {
+			long to = (long) Math.floor((start + span * (c + 1) / width) * framesPerUnit);
+			// Zoomed in past a frame per pixel, columns share frames
+			if (!mWaveform.getMinMax(from, Math.max(to, from + 1), mMinMax)) {
+				from = to;
+				continue;
+			}
+			from = to;
+
+			float y1;
+			float y2;
+			if (mTrackStyle == TRACK_STYLE_HISTOGRAM) {
+				float peak = Math.min(1f, Math.max(Math.abs(mMinMax[0]), Math.abs(mMinMax[1])));
+				y1 = bottom - peak * (bottom - top);
+				y2 = bottom;
+			}
+			else {
+				y1 = mY - Math.min(1f, Math.max(-1f, mMinMax[1])) * half;
+				y2 = mY - Math.min(1f, Math.max(-1f, mMinMax[0])) * half;
+			}
+			if (y2 - y1 < 1f) {
+				// Keep silence visible as a one pixel line
+				float mid = (y1 + y2) / 2f;
+				y1 = mid - 0.5f;
+				y2 = mid + 0.5f;
+			}
+
+			float x = mLeftX + c + 0.5f;
+			mWaveformLines[count * 4] = x;
+			mWaveformLines[count * 4 + 1] = y1;
+			mWaveformLines[count * 4 + 2] = x;
+			mWaveformLines[count * 4 + 3] = y2;
+			count++;
+		}
+
+		mWaveformPaint.setColor(paint.getColor());
+		canvas.drawLines(mWaveformLines, 0, count * 4, mWaveformPaint);
+	}
+
+	// Timeline ////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Listens for the visible window of a timeline moving, by pinch, drag, fling or
+	 * {@link #setViewport(double, double)}.
+	 */
+	public interface OnViewportChangedListener {
+		void onViewportChanged(HorizontalSeekBar bar, double start, double end);
+	}
+
+	public void setOnViewportChangedListener(OnViewportChangedListener l) {
+		mOnViewportChangedListener = l;
+	}
+
+	/**
+	 * Turns on timeline mode for a domain of {@code duration} units (milliseconds, frames...),
+	 * or turns it off when {@code duration} is 0.
+	 * <p>
+	 * In timeline mode, the bar shows a window of the domain that pinching zooms and dragging
+	 * or flinging the bar (away from any thumb) scrolls. Thumb values are timeline units; use
+	 * {@link ThumbView#setExactValue(double)} and {@link ThumbView#getExactValue()} for values
+	 * a float can't resolve. Only the ticks within the window are laid out, so drawing costs
+	 * the same for any duration, and thumbs outside of it are hidden. The value scale is
+	 * ignored. The max becomes the duration, capped at {@link Integer#MAX_VALUE}.
+	 */
+	public void setTimelineDuration(long duration) {
+		mScroller.forceFinished(true);
+		if (duration <= 0) {
+			if (mTimeline != null) {
+				mTimeline = null;
+				for (int i = 0; i < getChildCount(); i++) {
+					getChildAt(i).setVisibility(VISIBLE);
+				}
+				invalidateTrack();
+				requestLayout();
+			}
+			return;
+		}
+		if (mTimeline == null) {
+			mTimeline = new TimelineViewport();
+		}
+		mTimeline.setDuration(duration);
+		setMax((int) Math.min(duration, Integer.MAX_VALUE));
+		dispatchViewportChanged();
+	}
+
+	/**
+	 * @return the duration of the timeline, or 0 when not in timeline mode
+	 */
+	public long getTimelineDuration() {
+		return mTimeline != null ? mTimeline.getDuration() : 0L;
+	}
+
+	/**
+	 * Shows the timeline from {@code start} to {@code end}, within the domain and the
+	 * minimum span. Does nothing when not in timeline mode.
+	 */
+	public void setViewport(double start, double end) {
+		if (mTimeline != null && mTimeline.setRange(start, end)) {
+			dispatchViewportChanged();
+		}
+	}
+
+	public double getViewportStart() {
+		return mTimeline != null ? mTimeline.getStart() : 0d;
+	}
+
+	public double getViewportEnd() {
+		return mTimeline != null ? mTimeline.getEnd() : max;
+	}
+
+	/**
+	 * Sets how far in pinching can zoom: the window never shows less than {@code span}
+	 * timeline units. 1 by default.
+	 */
+	public void setMinViewportSpan(double span) {
+		if (mTimeline != null) {
+			double start = mTimeline.getStart();
+			double end = mTimeline.getEnd();
+			mTimeline.setMinSpan(span);
+			if (start != mTimeline.getStart() || end != mTimeline.getEnd()) {
+				dispatchViewportChanged();
+			}
+		}
+	}
+
+	private void dispatchViewportChanged() {
+		invalidateTrack();
+		relayoutThumbs();
+		if (mOnViewportChangedListener != null) {
+			mOnViewportChangedListener.onViewportChanged(this, mTimeline.getStart(), mTimeline.getEnd());
+		}
+	}
+
+	private double getUnitsPerPixel() {
+		int width = mRightX - mLeftX;
+		return width > 0 ? mTimeline.getSpan() / width : 0d;
+	}
+
+	private void panPixels(float dx) {
+		if (dx != 0f && mTimeline.pan(-dx * getUnitsPerPixel())) {
+			dispatchViewportChanged();
+		}
+	}
+
+	private final ScaleGestureDetector.OnScaleGestureListener mScaleListener =
+		new ScaleGestureDetector.SimpleOnScaleGestureListener() {
+			@Override
+			public boolean onScaleBegin(ScaleGestureDetector detector) {
+				mLastFocusX = detector.getFocusX();
+				return mTimeline != null;
+			}
+
+			@Override
+			public boolean onScale(ScaleGestureDetector detector) {
+				float factor = detector.getScaleFactor();
+				if (factor <= 0f || mRightX <= mLeftX) {
+					return false;
+				}
+				float focusX = detector.getFocusX();
+				boolean moved = mTimeline.pan(-(focusX - mLastFocusX) * getUnitsPerPixel());
+				double focus = mTimeline.fromFraction((double) (focusX - mLeftX) / (mRightX - mLeftX));
+				moved |= mTimeline.zoom(1d / factor, focus);
+				mLastFocusX = focusX;
+				if (moved) {
+					dispatchViewportChanged();
+				}
+				return true;
+			}
+		};
+
+	@Override
+	public boolean onTouchEvent(MotionEvent event) {
+		boolean handled = super.onTouchEvent(event);
+		if (mTimeline == null || !isEnabled()) {
+			return handled;
+		}
+
+		switch (event.getActionMasked()) {
+		case MotionEvent.ACTION_DOWN:
+			mScroller.forceFinished(true);
+			// A touch that didn't grab a thumb scrolls the timeline
+			mPanning = !isDragging();
+			if (mPanning) {
+				mLastPanX = event.getX();
+				mPanResync = false;
+				if (mVelocityTracker == null) {
+					mVelocityTracker = VelocityTracker.obtain();
+				}
+				mVelocityTracker.clear();
+				mVelocityTracker.addMovement(event);
+				if (getParent() != null) {
+					getParent().requestDisallowInterceptTouchEvent(true);
+				}
+				mScaleDetector.onTouchEvent(event);
+			}
+			break;
+
+		case MotionEvent.ACTION_MOVE:
+			if (mPanning) {
+				mVelocityTracker.addMovement(event);
+				mScaleDetector.onTouchEvent(event);
+				if (!mScaleDetector.isInProgress() && !mPanResync) {
+					panPixels(event.getX() - mLastPanX);
+				}
+				mLastPanX = event.getX();
+				mPanResync = false;
+			}
+			break;
+
+		case MotionEvent.ACTION_POINTER_DOWN:
+		case MotionEvent.ACTION_POINTER_UP:
+			if (mPanning) {
+				mVelocityTracker.addMovement(event);
+				mScaleDetector.onTouchEvent(event);
+				// The first pointer may have changed; don't jump to it
+				mPanResync = true;
+			}
+			break;
+
+		case MotionEvent.ACTION_UP:
+		case MotionEvent.ACTION_CANCEL:
+			if (mPanning) {
+				mScaleDetector.onTouchEvent(event);
+				mPanning = false;
+				if (event.getActionMasked() == MotionEvent.ACTION_UP) {
+					mVelocityTracker.addMovement(event);
+					mVelocityTracker.computeCurrentVelocity(1000, mMaxFlingVelocity);
+					float vx = mVelocityTracker.getXVelocity();
+					if (Math.abs(vx) > mMinFlingVelocity) {
+						mLastFlingX = 0;
+						mScroller.fling(0, 0, (int) -vx, 0, Integer.MIN_VALUE, Integer.MAX_VALUE, 0, 0);
+						postInvalidateOnAnimation();
+					}
+				}
+				mVelocityTracker.recycle();
+				mVelocityTracker = null;
+			}
+			break;
+		}
+		return true;
+	}
+
+	@Override
+	protected double getExactMax() {
+		return mTimeline != null ? mTimeline.getDuration() : max;
+	}
+
+	@Override
+	protected boolean isTrackMoving() {
+		// Every frame of a pan, pinch or fling redraws the ticks and waveform anyway
+		return mTimeline != null && (mPanning || mScaleDetector.isInProgress() || !mScroller.isFinished());
+	}
+
+	@Override
+	public void computeScroll() {
+		if (mTimeline == null || !mScroller.computeScrollOffset()) {
+			return;
+		}
+		int x = mScroller.getCurrX();
+		int dx = x - mLastFlingX;
+		mLastFlingX = x;
+		if (dx != 0 && !mTimeline.pan(dx * getUnitsPerPixel())) {
+			// Reached an end of the timeline
+			mScroller.forceFinished(true);
+			return;
+		}
+		if (dx != 0) {
+			dispatchViewportChanged();
+		}
+		postInvalidateOnAnimation();
+	}
+
+	@Override
+	protected void onDetachedFromWindow() {
+		super.onDetachedFromWindow();
+		// Don't let a long lived waveform hold on to this view
+		if (mWaveform != null) {
+			mWaveform.removeOnWaveformChangedListener(this);
+		}
+		mScroller.forceFinished(true);
+		if (mVelocityTracker != null) {
+			mVelocityTracker.recycle();
+			mVelocityTracker = null;
+		}
+		mPanning = false;
+	}
+
+	@Override
+	protected void drawTicks(Canvas canvas) {
+		if (mTimeline == null) {
+			super.drawTicks(canvas);
+			return;
+		}
+
+		// Same decimation as the base class, over the visible window only
+		double minStep = getTickMinSpacing() * getUnitsPerPixel();
+		if (minStep <= 0d) {
+			return;
+		}
+		long major = Math.max(0, getMajorTickInterval());
+		long minorStep = TimelineViewport.tickStep(minStep, 1);
+		long majorStep = major > 0 ? TimelineViewport.tickStep(minStep, major) : 0;
+		if (major > 0 && minorStep >= major) {
+			minorStep = 0;
+		}
+
+		if (minorStep > 0) {
+			int count = layoutTimelineTicks(minorStep, major);
+			mTickPaint.setStrokeWidth(getTickRadius() * 2f);
+			canvas.drawPoints(mTickPoints, 0, count * 2, mTickPaint);
+		}
+		if (majorStep > 0) {
+			int count = layoutTimelineTicks(majorStep, 0);
+			mTickPaint.setStrokeWidth(getMajorTickRadius() * 2f);
+			canvas.drawPoints(mTickPoints, 0, count * 2, mTickPaint);
+		}
+	}
+
+	/**
+	 * Lays out the ticks at the multiples of {@code step} within the visible window into
+	 * mTickPoints, skipping the multiples of {@code skip} when it is positive.
+	 *
+	 * @return the number of ticks
+	 */
+	private int layoutTimelineTicks(long step, long skip) {
+		double start = mTimeline.getStart();
+		double end = mTimeline.getEnd();
+		long first = (long) Math.ceil(start / step) * step;
+		int capacity = 2 * ((int) ((end - start) / step) + 2);
+		if (mTickPoints.length < capacity) {
+			mTickPoints = new float[capacity];
+		}
+		int count = 0;
+		for (long v = first; v <= end && count * 2 < capacity; v += step) {
+			if (skip > 0 && v % skip == 0) {
+				continue;
+			}
+			mTickPoints[count * 2] = getXOnBar((double) v);
+			mTickPoints[count * 2 + 1] = mY;
+			count++;
+		}
+		return count;
+	}
 }
@@ -0,0 +1,522 @@
+package com.dgmltn.multiseekbar;
+
+import android.graphics.Path;
+import android.graphics.PointF;
+
+import com.dgmltn.multiseekbar.internal.ListenerArray;
+import com.dgmltn.multiseekbar.internal.PolylineIndex;
+import com.dgmltn.multiseekbar.internal.SvgPathParser;
+
+/**
+ * An editable path for {@link PathSeekBar}: one contour of cubic Bézier segments whose
+ * control points can be moved one at a time, e.g. by a curve editor.
+ * <p>
+ * Arc lengths are cached per segment, along with a running total, so moving a point only
+ * re-measures the one or two segments that share it. A bar showing the model updates its
+ * track and thumbs from these cached lengths, without parsing or measuring the whole path
+ * again. Lines and quadratic curves are stored as equivalent cubics.
+ * <p>
+ * Coordinates are in the pixels of the bar: unlike a path string, a model is not scaled to
+ * fit the bar.
+ */
+public class PathModel {
+
+	/**
+	 * Notified after every change to the model.
+	 */
+	public interface OnPathChangedListener {
+		void onPathChanged(PathModel model);
+	}
+
+	public static final int POINT_CONTROL_1 = 0;
+	public static final int POINT_CONTROL_2 = 1;
+	public static final int POINT_END = 2;
+
+	// Each segment is measured as this many straight chords
+	private static final int CHORDS = 16;
+
+	private int count = 0;
+	private boolean closed = false;
+
+	// Start point, then (control 1, control 2, end) for each segment
+	private float[] points = new float[8];
+	private float[] lengths = new float[1];
+	// prefix[i] is the length of the path before segment i
+	private float[] prefix = new float[2];
+	// CHORDS + 1 points per segment, the last one shared with the next segment
+	private float[] flat = new float[(CHORDS + 1) * 2];
+	// Length along its segment of every flattened point
+	private float[] chordPrefix = new float[CHORDS + 1];
+
+	private final PolylineIndex index = new PolylineIndex();
+	private boolean indexDirty = true;
+
+	private final ListenerArray<OnPathChangedListener> listeners =
+		new ListenerArray<>(OnPathChangedListener.class);
+
+	// Result of the last locate()
+	private int locatedSegment;
+	private float locatedT;
+
+	private final float[] mTmp = new float[2];
+
+	public PathModel(float startX, float startY) {
+		points[0] = startX;
+		points[1] = startY;
+		flat[0] = startX;
+		flat[1] = startY;
+	}
+
+	/**
+	 * Creates a model from SVG path data, which must have a single contour.
+	 *
+	 * @throws IllegalArgumentException if {@code data} is not a valid single contour path
+	 */
+	public static PathModel parse(String data) {
+		final PathModel[] model = new PathModel[1];
+		new SvgPathParser().parse(data, new SvgPathParser.Sink() {
+			@Override
+			public void moveTo(float x, float y) {
+				if (model[0] != null && (model[0].count > 0 || model[0].closed)) {
+					throw new IllegalArgumentException("PathModel supports a single contour");
+				}
+				model[0] = new PathModel(x, y);
+			}
+
+			@Override
+			public void lineTo(float x, float y) {
+				model().lineTo(x, y);
+			}
+
+			@Override
+			public void quadTo(float x1, float y1, float x2, float y2) {
+				model().quadTo(x1, y1, x2, y2);
+			}
+
+			@Override
+			public void cubicTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+				model().cubicTo(x1, y1, x2, y2, x3, y3);
+			}
+
+			@Override
+			public void close() {
+				model().close();
+			}
+
+			private PathModel model() {
+				if (model[0] == null || model[0].closed) {
+					throw new IllegalArgumentException("PathModel supports a single contour");
+				}
+				return model[0];
+			}
+		});
+		if (model[0] == null) {
+			throw new IllegalArgumentException("empty path");
+		}
+		return model[0];
+	}
+
+	/////////////////////////////////////////////////////////////////////////
+	// Building
+	/////////////////////////////////////////////////////////////////////////
+
+	public void lineTo(float x, float y) {
+		float x0 = getEndX();
+		float y0 = getEndY();
+		cubicTo(x0 + (x - x0) / 3f, y0 + (y - y0) / 3f,
+			x0 + 2f * (x - x0) / 3f, y0 + 2f * (y - y0) / 3f, x, y);
+	}
+
+	public void quadTo(float x1, float y1, float x2, float y2) {
+		float x0 = getEndX();
+		float y0 = getEndY();
+		cubicTo(x0 + 2f * (x1 - x0) / 3f, y0 + 2f * (y1 - y0) / 3f,
+			x2 + 2f * (x1 - x2) / 3f, y2 + 2f * (y1 - y2) / 3f, x2, y2);
+	}
+
+	public void cubicTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+		if (closed) {
+			throw new IllegalStateException("the path is closed");
+		}
+		grow(count + 1);
+		int p = 2 + 6 * count;
+		points[p] = x1;
+		points[p + 1] = y1;
+		points[p + 2] = x2;
+		points[p + 3] = y2;
+		points[p + 4] = x3;
+		points[p + 5] = y3;
+		count++;
+		measure(count - 1);
+		updatePrefix(count - 1);
+		changed();
+	}
+
+	/**
+	 * Closes the contour with a line back to the start point. The end of that line then
+	 * follows the start point when it moves.
+	 */
+	public void close() {
+		if (closed) {
+			return;
+		}
+		if (getEndX() != points[0] || getEndY() != points[1]) {
+			lineTo(points[0], points[1]);
+		}
+		closed = true;
+		changed();
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/////////////////////////////////////////////////////////////////////////
+	// Editing
+	/////////////////////////////////////////////////////////////////////////
+
+	public int getSegmentCount() {
+		return count;
+	}
+
+	public float getStartX() {
+		return points[0];
+	}
+
+	public float getStartY() {
+		return points[1];
+	}
+
+	/**
+	 * Moves the start point, which only re-measures the first segment (and the last one, if
+	 * the path is closed).
+	 */
+	public void setStart(float x, float y) {
+		points[0] = x;
+		points[1] = y;
+		if (count == 0) {
+			flat[0] = x;
+			flat[1] = y;
+			changed();
+			return;
+		}
+		if (closed) {
+			int p = 2 + 6 * (count - 1) + 4;
+			points[p] = x;
+			points[p + 1] = y;
+			measure(count - 1);
+		}
+		measure(0);
+		updatePrefix(0);
+		changed();
+	}
+
+	/**
+	 * @param point one of {@link #POINT_CONTROL_1}, {@link #POINT_CONTROL_2} or
+	 *              {@link #POINT_END}
+	 */
+	public float getPointX(int segment, int point) {
+		return points[2 + 6 * checkSegment(segment) + 2 * checkPoint(point)];
+	}
+
+	public float getPointY(int segment, int point) {
+		return points[2 + 6 * checkSegment(segment) + 2 * checkPoint(point) + 1];
+	}
+
+	/**
+	 * Moves one point of a segment. Only that segment is re-measured, plus the next one when
+	 * the end point (which starts the next segment) moves.
+	 *
+	 * @param point one of {@link #POINT_CONTROL_1}, {@link #POINT_CONTROL_2} or
+	 *              {@link #POINT_END}
+	 */
+	public void setPoint(int segment, int point, float x, float y) {
+		int p = 2 + 6 * checkSegment(segment) + 2 * checkPoint(point);
+		points[p] = x;
+		points[p + 1] = y;
+		measure(segment);
+		if (point == POINT_END) {
+			if (segment + 1 < count) {
+				measure(segment + 1);
+			}
+			else if (closed) {
+				// The end of the closing segment is the start point
+				setStart(x, y);
+				return;
+			}
+		}
+		updatePrefix(segment);
+		changed();
+	}
+
+	public void addOnPathChangedListener(OnPathChangedListener l) {
+		listeners.add(l);
+	}
+
+	public void removeOnPathChangedListener(OnPathChangedListener l) {
+		listeners.remove(l);
+	}
+
+	/////////////////////////////////////////////////////////////////////////
+	// Queries
+	/////////////////////////////////////////////////////////////////////////
+
+	public float getLength() {
+		return prefix[count];
+	}
+
+	public float getSegmentLength(int segment) {
+		return lengths[checkSegment(segment)];
+	}
+
+	/**
+	 * @param fraction a fraction of the path's length; clamped to [0, 1]
+	 */
+	public void getPosition(float fraction, PointF out) {
+		if (count == 0) {
+			out.set(points[0], points[1]);
+			return;
+		}
+		locate(fraction * getLength());
+		evaluate(locatedSegment, locatedT, mTmp);
+		out.set(mTmp[0], mTmp[1]);
+	}
+
+	/**
+	 * @param fraction a fraction of the path's length; clamped to [0, 1]
+	 * @return the tangent angle at {@code fraction}, in degrees between -90 and 90, or NaN
+	 * where the path has no direction
+	 */
+	public float getAngle(float fraction) {
+		if (count == 0) {
+			return Float.NaN;
+		}
+		locate(fraction * getLength());
+		derivative(locatedSegment, locatedT, mTmp);
+		return (float) Math.toDegrees(Math.atan(mTmp[1] / mTmp[0]));
+	}
+
+	/**
+	 * @return the fraction of the path's length at which the path comes closest to (x, y)
+	 */
+	public float findNearest(float x, float y) {
+		float length = getLength();
+		if (length <= 0f) {
+			return 0f;
+		}
+		if (indexDirty) {
+			index.build(flat, 2, count * CHORDS);
+			indexDirty = false;
+		}
+		float position = index.findNearestPosition(x, y);
+		int k = Math.min((int) position, count * CHORDS - 1);
+		int segment = k / CHORDS;
+		int chord = k % CHORDS;
+		int c = segment * (CHORDS + 1) + chord;
+		float along = chordPrefix[c] + (position - k) * (chordPrefix[c + 1] - chordPrefix[c]);
+		return Math.max(0f, Math.min(1f, (prefix[segment] + along) / length));
+	}
+
+	/**
+	 * Replaces the contents of {@code out} with the path.
+	 */
+	public void toPath(Path out) {
+		out.rewind();
+		out.moveTo(points[0], points[1]);
+		for (int i = 0; i < count; i++) {
+			int p = 2 + 6 * i;
+			out.cubicTo(points[p], points[p + 1], points[p + 2], points[p + 3], points[p + 4], points[p + 5]);
+		}
+		if (closed) {
+			out.close();
+		}
+	}
+
+	/**
+	 * Appends the part of the path between two fractions of its length to {@code out},
+	 * starting with a moveTo. The pieces of the cut segments are exact sub-curves.
+	 */
+	public void getSegment(float fromFraction, float toFraction, Path out) {
+		if (count == 0 || toFraction <= fromFraction) {
+			return;
+		}
+		float length = getLength();
+		locate(fromFraction * length);
+		int s0 = locatedSegment;
+		float t0 = locatedT;
+		locate(toFraction * length);
+		int s1 = locatedSegment;
+		float t1 = locatedT;
+
+		evaluate(s0, t0, mTmp);
+		out.moveTo(mTmp[0], mTmp[1]);
+		if (s0 == s1) {
+			appendSubCurve(s0, t0, t1, out);
+			return;
+		}
+		appendSubCurve(s0, t0, 1f, out);
+		for (int i = s0 + 1; i < s1; i++) {
+			int p = 2 + 6 * i;
+			out.cubicTo(points[p], points[p + 1], points[p + 2], points[p + 3], points[p + 4], points[p + 5]);
+		}
+		appendSubCurve(s1, 0f, t1, out);
+	}
+
+	/////////////////////////////////////////////////////////////////////////
+	// Private members
+	/////////////////////////////////////////////////////////////////////////
+
+	private float getEndX() {
+		return points[count == 0 ? 0 : 2 + 6 * (count - 1) + 4];
+	}
+
+	private float getEndY() {
+		return points[count == 0 ? 1 : 2 + 6 * (count - 1) + 5];
+	}
+
+	private int checkSegment(int segment) {
+		if (segment < 0 || segment >= count) {
+			throw new IndexOutOfBoundsException("segment " + segment + " of " + count);
+		}
+		return segment;
+	}
+
+	private static int checkPoint(int point) {
+		if (point < POINT_CONTROL_1 || point > POINT_END) {
+			throw new IllegalArgumentException("bad point " + point);
+		}
+		return point;
+	}
+
+	/**
+	 * Flattens segment {@code i} into chords and stores its length.
+	 */
+	private void measure(int i) {
+		int f = i * CHORDS * 2;
+		int c = i * (CHORDS + 1);
+		float length = 0f;
+		chordPrefix[c] = 0f;
+		for (int j = 0; j <= CHORDS; j++) {
+			evaluate(i, (float) j / CHORDS, mTmp);
+			flat[f + 2 * j] = mTmp[0];
+			flat[f + 2 * j + 1] = mTmp[1];
+			if (j > 0) {
+				float dx = mTmp[0] - flat[f + 2 * j - 2];
+				float dy = mTmp[1] - flat[f + 2 * j - 1];
+				length += (float) Math.sqrt(dx * dx + dy * dy);
+				chordPrefix[c + j] = length;
+			}
+		}
+		lengths[i] = length;
+		indexDirty = true;
+	}
+
+	/**
+	 * Recomputes the running length total from segment {@code from} on.
+	 */
+	private void updatePrefix(int from) {
+		for (int i = from; i < count; i++) {
+			prefix[i + 1] = prefix[i] + lengths[i];
+		}
+	}
+
+	/**
+	 * Finds the segment and curve parameter at {@code distance} along the path, into
+	 * locatedSegment and locatedT.
+	 */
+	private void locate(float distance) {
+		distance = Math.max(0f, Math.min(getLength(), distance));
+
+		// Last segment starting at or before distance
+		int lo = 0;
+		int hi = count - 1;
+		while (lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if (prefix[mid] <= distance) {
+				lo = mid;
+			}
+			else {
+				hi = mid - 1;
+			}
+		}
+		int segment = lo;
+		float along = distance - prefix[segment];
+
+		int c = segment * (CHORDS + 1);
+		int chord = 0;
+		while (chord < CHORDS - 1 && chordPrefix[c + chord + 1] <= along) {
+			chord++;
+		}
+		float chordLength = chordPrefix[c + chord + 1] - chordPrefix[c + chord];
+		float u = chordLength > 0f ? (along - chordPrefix[c + chord]) / chordLength : 0f;
+
+		locatedSegment = segment;
+		locatedT = (chord + Math.max(0f, Math.min(1f, u))) / CHORDS;
+	}
+
+	private void evaluate(int i, float t, float[] out) {
+		int p = 6 * i;
+		float mt = 1f - t;
+		float a = mt * mt * mt;
+		float b = 3f * mt * mt * t;
+		float c = 3f * mt * t * t;
+		float d = t * t * t;
+		out[0] = a * points[p] + b * points[p + 2] + c * points[p + 4] + d * points[p + 6];
+		out[1] = a * points[p + 1] + b * points[p + 3] + c * points[p + 5] + d * points[p + 7];
+	}
+
+	private void derivative(int i, float t, float[] out) {
+		int p = 6 * i;
+		float mt = 1f - t;
+		float a = 3f * mt * mt;
+		float b = 6f * mt * t;
+		float c = 3f * t * t;
+		out[0] = a * (points[p + 2] - points[p]) + b * (points[p + 4] - points[p + 2]) + c * (points[p + 6] - points[p + 4]);
+		out[1] = a * (points[p + 3] - points[p + 1]) + b * (points[p + 5] - points[p + 3]) + c * (points[p + 7] - points[p + 5]);
+	}
+
+	/**
+	 * Appends the part of segment {@code i} between t0 and t1 as one cubic. The control
+	 * points of a cubic's sub-curve are its end points moved along the end tangents by a
+	 * third of the parameter span.
+	 */
+	private void appendSubCurve(int i, float t0, float t1, Path out) {
+		float span = (t1 - t0) / 3f;
+		evaluate(i, t0, mTmp);
+		float x0 = mTmp[0];
+		float y0 = mTmp[1];
+		derivative(i, t0, mTmp);
+		float x1 = x0 + span * mTmp[0];
+		float y1 = y0 + span * mTmp[1];
+		evaluate(i, t1, mTmp);
+		float x3 = mTmp[0];
+		float y3 = mTmp[1];
+		derivative(i, t1, mTmp);
+		out.cubicTo(x1, y1, x3 - span * mTmp[0], y3 - span * mTmp[1], x3, y3);
+	}
+
+	private void grow(int segments) {
+		if (lengths.length >= segments) {
+			return;
+		}
+		int capacity = Math.max(segments, lengths.length * 2);
+		points = copyOf(points, 2 + 6 * capacity);
+		lengths = copyOf(lengths, capacity);
+		prefix = copyOf(prefix, capacity + 1);
+		flat = copyOf(flat, (capacity * CHORDS + 1) * 2);
+		chordPrefix = copyOf(chordPrefix, capacity * (CHORDS + 1));
+	}
+
+	private static float[] copyOf(float[] a, int size) {
+		float[] b = new float[size];
+		System.arraycopy(a, 0, b, 0, Math.min(a.length, size));
+		return b;
+	}
+
+	private void changed() {
+		OnPathChangedListener[] l = listeners.get();
+		for (int i = 0; i < l.length; i++) {
+			l[i].onPathChanged(this);
+		}
+	}
+}
@@ -1,49 +1,132 @@
 package com.dgmltn.multiseekbar;
 
 import com.dgmltn.multiseekbar.internal.AbsMultiSeekBar;
+import com.dgmltn.multiseekbar.internal.GridThumbIndex;
+import com.dgmltn.multiseekbar.internal.PathGeometry;
+import com.dgmltn.multiseekbar.internal.PathGeometryCache;
+import com.dgmltn.multiseekbar.internal.ThumbHitIndex;
 
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.Canvas;
-import android.graphics.Matrix;
+import android.graphics.DashPathEffect;
 import android.graphics.Paint;
 import android.graphics.Path;
-import android.graphics.PathMeasure;
 import android.graphics.PointF;
 import android.graphics.RectF;
+import android.support.annotation.IntDef;
 import android.util.AttributeSet;
 
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
 /**
  * Created by doug on 11/2/15.
  */
-public class PathSeekBar extends AbsMultiSeekBar {
+public class PathSeekBar extends AbsMultiSeekBar implements PathModel.OnPathChangedListener {
+
+	@Retention(RetentionPolicy.SOURCE)
+	@IntDef({ PROJECTION_X, PROJECTION_NEAREST })
+	public @interface Projection {
+	}
+
+	/**
+	 * A touch selects the value whose horizontal position matches the touch. Feels natural on
+	 * paths that run left to right, but can't reach every part of a loop.
+	 */
+	public static final int PROJECTION_X = 0;
+	/**
+	 * A touch selects the value at the point of the path closest to the touch.
+	 */
+	public static final int PROJECTION_NEAREST = 1;
+
+	@Retention(RetentionPolicy.SOURCE)
+	@IntDef({ RANGE_RENDERING_SEGMENT, RANGE_RENDERING_CACHED_SEGMENT, RANGE_RENDERING_DASH })
+	public @interface RangeRendering {
+	}
+
+	/**
+	 * Each range is extracted from the path with PathMeasure.getSegment on every draw.
+	 */
+	public static final int RANGE_RENDERING_SEGMENT = 0;
+	/**
+	 * Each range is extracted into its own path, which is kept until one of its ends moves
+	 * by more than half a pixel along the path.
+	 */
+	public static final int RANGE_RENDERING_CACHED_SEGMENT = 1;
+	/**
+	 * Each range is drawn as the full path, with a DashPathEffect that only shows the range.
+	 * Nothing is extracted, but the whole path is stroked once per range. Paths with several
+	 * contours are drawn like {@link #RANGE_RENDERING_CACHED_SEGMENT}.
+	 */
+	public static final int RANGE_RENDERING_DASH = 2;
+
+	// Cached range ends may lag the exact ones by this much, along the path
+	private static final float RANGE_CACHE_TOLERANCE_PX = 0.5f;
 
-    private final RectF mTmpRectF = new RectF();
     private float[] mTmpPoint = new float[2];
-    private final Path mTmpPath = new Path();
 
     /**
      * Will get set in onLayout to the drawing bounds of where the path will be drawn
      */
     private final RectF mBounds = new RectF();
 
-    /**
-     * Matrix transforming bounds of path to drawing bounds of view/canvas
-     */
-    private final Matrix mMatrix = new Matrix();
-
     Paint mPaint = new Paint();
 
 	private boolean mRotateThumbs = false;
 
     /**
-     * String representing the bezier curve of the path. This string uses a subset
-     * of SVG's "d" path string; it supports only M, L, C and z commands
+     * String representing the bezier curve of the path, in the syntax of SVG's "d" path
+     * attribute. Every contour (each M command) is part of the bar, one after the other.
      */
 	private String mPathString;
 
-	private final Path mPath = new Path();
-    private final PathMeasure mPathMeasure = new PathMeasure(mPath, false);
+    /**
+     * The path placed in mBounds, with its PathMeasure, arc-length table and segment grid.
+     * Shared with every other bar showing the same path at the same size.
+     */
+    private PathGeometry mGeometry = PathGeometry.EMPTY;
+
+    /**
+     * When set, the editable path shown instead of mPathString, and the Path it was last
+     * drawn into
+     */
+    private PathModel mModel;
+    private final Path mModelPath = new Path();
+    private boolean mModelPathDirty = true;
+
+    /**
+     * Picks a resolution of about one sample every {@link #AUTO_SAMPLE_SPACING_DP} along the path
+     */
+    public static final int RESOLUTION_AUTO = 0;
+
+    private static final float AUTO_SAMPLE_SPACING_DP = 2f;
+
+    private int mResolution = RESOLUTION_AUTO;
+    private boolean mExactPath = false;
+
+    /**
+     * How far, in pixels, the drawn track may stray from the exact path. 0 draws the exact path.
+     */
+    private float mRenderTolerance = DEFAULT_RENDER_TOLERANCE_PX;
+
+    private static final float DEFAULT_RENDER_TOLERANCE_PX = 0.25f;
+
+    @Projection
+    private int mProjection = PROJECTION_X;
+
+    @RangeRendering
+    private int mRangeRendering = RANGE_RENDERING_CACHED_SEGMENT;
+
+    /**
+     * Per range: the extracted segment or dash effect, and the path lengths it was made for
+     */
+    private Path[] mRangeSegments = new Path[0];
+    private DashPathEffect[] mRangeEffects = new DashPathEffect[0];
+    private float[] mRangeStarts = new float[0];
+    private float[] mRangeEnds = new float[0];
+    private PathGeometry mRangeGeometry;
+    private final Paint mDashPaint = new Paint();
 
     public PathSeekBar(Context context, AttributeSet attrs) {
 		super(context, attrs);
@@ -52,6 +135,11 @@ public class PathSeekBar extends AbsMultiSeekBar {
 			TypedArray ta = context.obtainStyledAttributes(attrs, R.styleable.PathSeekBar, 0, 0);
 			mRotateThumbs = ta.getBoolean(R.styleable.PathSeekBar_rotate_thumbs, mRotateThumbs);
 			mPathString = ta.getString(R.styleable.PathSeekBar_path);
+			mResolution = ta.getInteger(R.styleable.PathSeekBar_path_resolution, mResolution);
+			mExactPath = ta.getBoolean(R.styleable.PathSeekBar_exact_path, mExactPath);
+			mProjection = validateProjection(ta.getInt(R.styleable.PathSeekBar_projection, mProjection));
+			mRenderTolerance = ta.getDimension(R.styleable.PathSeekBar_render_tolerance, mRenderTolerance);
+			mRangeRendering = validateRangeRendering(ta.getInt(R.styleable.PathSeekBar_range_rendering, mRangeRendering));
 			ta.recycle();
 		}
 	}
@@ -77,52 +165,308 @@ public class PathSeekBar extends AbsMultiSeekBar {
     }
 
     public void setPath(String pathString) {
+        setPathModelInternal(null);
         mPathString = pathString;
         measurePath();
+        requestLayout();
     }
 
     public String getPath() {
         return mPathString;
     }
 
+    /**
+     * Shows an editable path instead of a path string. Moving a point of the model only
+     * re-measures the segments touching it, and thumbs keep their values. Pass null to go
+     * back to the path string.
+     *
+     * @see PathModel
+     */
+    public void setPathModel(PathModel model) {
+        setPathModelInternal(model);
+        invalidateTrack();
+        requestLayout();
+    }
+
+    public PathModel getPathModel() {
+        return mModel;
+    }
+
+    private void setPathModelInternal(PathModel model) {
+        if (mModel != null) {
+            mModel.removeOnPathChangedListener(this);
+        }
+        mModel = model;
+        mModelPathDirty = true;
+        if (mModel != null) {
+            mModel.addOnPathChangedListener(this);
+        }
+    }
+
+    @Override
+    public void onPathChanged(PathModel model) {
+        mModelPathDirty = true;
+        invalidateTrack();
+        // Thumbs keep their values, and are moved to the new positions of those values
+        requestLayout();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (mModel != null) {
+            mModel.addOnPathChangedListener(this);
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        // Don't let a long lived model hold on to this view
+        if (mModel != null) {
+            mModel.removeOnPathChangedListener(this);
+        }
+    }
+
+    /**
+     * Sets the number of segments the path is sampled into for position and tangent lookups,
+     * or {@link #RESOLUTION_AUTO}. Between samples, positions are interpolated linearly.
+     */
+    public void setPathResolution(int segments) {
+        mResolution = Math.max(RESOLUTION_AUTO, segments);
+        measurePath();
+        requestLayout();
+    }
+
+    public int getPathResolution() {
+        return mResolution;
+    }
+
+    /**
+     * When true, thumb positions and angles are measured on the path itself instead of looked
+     * up in the sampled table. Slower, but exact.
+     */
+    public void setExactPath(boolean exact) {
+        mExactPath = exact;
+        requestLayout();
+    }
+
+    public boolean isExactPath() {
+        return mExactPath;
+    }
+
+    /**
+     * Sets how far, in pixels, the drawn track may stray from the exact path. The track is
+     * drawn from a polyline simplified to that tolerance, which is much cheaper to stroke
+     * than a path with thousands of curves. Thumb positions, ranges and touches always use
+     * the exact path. 0 draws the exact path.
+     */
+    public void setRenderTolerance(float px) {
+        mRenderTolerance = Math.max(0f, px);
+        invalidateTrack();
+    }
+
+    public float getRenderTolerance() {
+        return mRenderTolerance;
+    }
+
+    /**
+     * Chooses how a touch is turned into a value: {@link #PROJECTION_X} (the default) or
+     * {@link #PROJECTION_NEAREST}.
+     */
+    public void setProjection(@Projection int projection) {
+        mProjection = validateProjection(projection);
+    }
+
+    @Projection
+    public int getProjection() {
+        return mProjection;
+    }
+
+    @Projection
+    private static int validateProjection(int p) {
+        return p == PROJECTION_NEAREST ? p : PROJECTION_X;
+    }
+
+    /**
+     * Chooses how highlighted ranges are drawn: {@link #RANGE_RENDERING_SEGMENT},
+     * {@link #RANGE_RENDERING_CACHED_SEGMENT} (the default) or {@link #RANGE_RENDERING_DASH}.
+     * Which one is fastest depends on the complexity of the path and on the device: the
+     * RangeRenderingBenchmark instrumentation test times all three from the drawConnectingLines
+     * timings of {@link #setMetricsEnabled(boolean) metrics}. Cached segments are the default
+     * because while a thumb is dragged, they extract only the range that moved and stroke
+     * only the ranges, where the other two extract every range or stroke the whole path
+     * once per range.
+     */
+    public void setRangeRendering(@RangeRendering int rendering) {
+        mRangeRendering = validateRangeRendering(rendering);
+        mRangeGeometry = null;
+        invalidate();
+    }
+
+    @RangeRendering
+    public int getRangeRendering() {
+        return mRangeRendering;
+    }
+
+    @RangeRendering
+    private static int validateRangeRendering(int r) {
+        return (r == RANGE_RENDERING_SEGMENT || r == RANGE_RENDERING_DASH) ? r : RANGE_RENDERING_CACHED_SEGMENT;
+    }
+
 	@Override
-	protected void drawConnectingLine(Canvas canvas, float fromVal, float toVal, Paint paint) {
-        float length = mPathMeasure.getLength();
-        float from = fromVal / max;
-        float to = toVal / max;
-        mTmpPath.rewind();
-        mPathMeasure.getSegment(from * length, to * length, mTmpPath, true);
-        canvas.drawPath(mTmpPath, paint);
+	protected ThumbHitIndex createHitIndex(float touchRadius) {
+		// Value order along an arbitrary path says nothing about screen proximity
+		return new GridThumbIndex(touchRadius);
 	}
 
 	@Override
-	protected float getNearestBarValue(float x, float y) {
-        // An alternative method of choosing the closest point...
-        // This is more mathematically correct but ends up not feeling as nice
-        // return closestPoint(x, y) * max;
+	protected void addConnectingLine(Path path, float fromVal, float toVal) {
+        if (mModel != null) {
+            mModel.getSegment(valueToFraction(fromVal), valueToFraction(toVal), path);
+            return;
+        }
+        float length = mGeometry.getLength();
+        float from = valueToFraction(fromVal);
+        float to = valueToFraction(toVal);
+        mGeometry.getSegment(from * length, to * length, path);
+	}
 
-		return clamp((x - mBounds.left) / mBounds.width()) * max;
+	@Override
+	protected void drawRanges(Canvas canvas, float[] ranges, int count, Paint paint) {
+		if (mRangeRendering == RANGE_RENDERING_SEGMENT || mModel != null || mGeometry.table.isEmpty()) {
+			super.drawRanges(canvas, ranges, count, paint);
+			return;
+		}
+
+		if (mRangeGeometry != mGeometry) {
+			// New path: nothing cached applies anymore
+			mRangeGeometry = mGeometry;
+			for (int i = 0; i < mRangeStarts.length; i++) {
+				mRangeStarts[i] = mRangeEnds[i] = -1f;
+			}
+		}
+		if (mRangeStarts.length < count) {
+			growRangeCache(count);
+		}
+
+		float length = mGeometry.getLength();
+		// Dashes restart on every contour, so they can only reveal ranges of a single contour
+		boolean dash = mRangeRendering == RANGE_RENDERING_DASH && mGeometry.getContourCount() == 1;
+		if (dash) {
+			mDashPaint.set(paint);
+		}
+		for (int i = 0; i < count; i++) {
+			float start = valueToFraction(ranges[2 * i]) * length;
+			float end = valueToFraction(ranges[2 * i + 1]) * length;
+			boolean stale = Math.abs(start - mRangeStarts[i]) > RANGE_CACHE_TOLERANCE_PX
+				|| Math.abs(end - mRangeEnds[i]) > RANGE_CACHE_TOLERANCE_PX;
+
+			if (dash) {
+				if (stale || mRangeEffects[i] == null) {
+					mRangeEffects[i] = createRangeEffect(start, end, length);
+					mRangeStarts[i] = start;
+					mRangeEnds[i] = end;
+				}
+				mDashPaint.setPathEffect(mRangeEffects[i]);
+				canvas.drawPath(mGeometry.path, mDashPaint);
+			}
+			else {
+				if (stale) {
+					mRangeSegments[i].rewind();
+					mGeometry.getSegment(start, end, mRangeSegments[i]);
+					mRangeStarts[i] = start;
+					mRangeEnds[i] = end;
+				}
+				canvas.drawPath(mRangeSegments[i], paint);
+			}
+		}
+	}
+
+	/**
+	 * A dash pattern one path length long, that is "on" from start to end only.
+	 */
+	private static DashPathEffect createRangeEffect(float start, float end, float length) {
+		float on = Math.max(end - start, 1e-3f);
+		float off = Math.max(length - on, 1e-3f);
+		return new DashPathEffect(new float[] { on, off }, length - start);
+	}
+
+	private void growRangeCache(int count) {
+		Path[] segments = new Path[count];
+		System.arraycopy(mRangeSegments, 0, segments, 0, mRangeSegments.length);
+		for (int i = mRangeSegments.length; i < count; i++) {
+			segments[i] = new Path();
+		}
+		DashPathEffect[] effects = new DashPathEffect[count];
+		System.arraycopy(mRangeEffects, 0, effects, 0, mRangeEffects.length);
+		float[] starts = new float[count];
+		float[] ends = new float[count];
+		System.arraycopy(mRangeStarts, 0, starts, 0, mRangeStarts.length);
+		System.arraycopy(mRangeEnds, 0, ends, 0, mRangeEnds.length);
+		for (int i = mRangeStarts.length; i < count; i++) {
+			starts[i] = ends[i] = -1f;
+		}
+		mRangeSegments = segments;
+		mRangeEffects = effects;
+		mRangeStarts = starts;
+		mRangeEnds = ends;
+	}
+
+	@Override
+	protected float getNearestBarValue(float x, float y) {
+		if (mProjection == PROJECTION_NEAREST && mModel != null) {
+			return fractionToValue(mModel.findNearest(x, y));
+		}
+		if (mProjection == PROJECTION_NEAREST && !mGeometry.table.isEmpty()) {
+			float position = mGeometry.index.findNearestPosition(x, y);
+			return fractionToValue(mGeometry.table.sampleToFraction(position));
+		}
+		return fractionToValue(clamp((x - mBounds.left) / mBounds.width()));
 	}
 
 	@Override
 	protected void getPointOnBar(PointF out, float value) {
 		value = clamp(value, 0f, max);
-		mPathMeasure.getPosTan(value / max * mPathMeasure.getLength(), mTmpPoint, null);
+		if (mModel != null) {
+			mModel.getPosition(valueToFraction(value), out);
+			return;
+		}
+		if (!mExactPath && !mGeometry.table.isEmpty()) {
+			mGeometry.table.getPosition(valueToFraction(value), out);
+			return;
+		}
+		mGeometry.getPosTan(valueToFraction(value) * mGeometry.getLength(), mTmpPoint, null);
 		out.set(mTmpPoint[0], mTmpPoint[1]);
 	}
 
 	@Override
 	protected void drawBar(Canvas canvas, Paint paint) {
 	    mPaint.set(paint);
-		canvas.drawPath(mPath, mPaint);
+		if (mModel != null) {
+			if (mModelPathDirty) {
+				mModel.toPath(mModelPath);
+				mModelPathDirty = false;
+			}
+			canvas.drawPath(mModelPath, mPaint);
+			return;
+		}
+		canvas.drawPath(mGeometry.getRenderPath(mRenderTolerance), mPaint);
 	}
 
 	@Override
-	public void onValueChange(ThumbView thumb, float oldVal, float newVal) {
-		super.onValueChange(thumb, oldVal, newVal);
-
-		if (mRotateThumbs) {
-            mPathMeasure.getPosTan(newVal / max * mPathMeasure.getLength(), null, mTmpPoint);
+	protected void onThumbPlaced(ThumbView thumb, float value, PointF position) {
+		if (mRotateThumbs && mModel != null) {
+			float angle = mModel.getAngle(valueToFraction(value));
+			if (!Float.isNaN(angle)) {
+				thumb.setRotation(angle);
+			}
+		}
+		else if (mRotateThumbs && !mExactPath && !mGeometry.table.isEmpty()) {
+			thumb.setRotation(mGeometry.table.getAngle(valueToFraction(value)));
+		}
+		else if (mRotateThumbs) {
+            mGeometry.getPosTan(valueToFraction(value) * mGeometry.getLength(), null, mTmpPoint);
             float angle = (float) Math.toDegrees(Math.atan(mTmpPoint[1] / mTmpPoint[0]));
             if (!Float.isNaN(angle)) {
                 thumb.setRotation(angle);
@@ -140,124 +484,12 @@ public class PathSeekBar extends AbsMultiSeekBar {
         return Math.max(min, Math.min(max, v));
     }
 
-    // https://stackoverflow.com/questions/20378930/svg-path-to-b%C3%A9zier-path-in-android
-
-    /**
-     * An ABSOLUTE MINIMUM to converd SVG's path "d" attribute to android Path;
-     * it supports only M, L, C and z commands
-     * @param data
-     * @param p
-     */
-    private void readPath(String data, Path p) {
-        p.reset();
-        try {
-            String[] tokens = data.split("[ ,]");
-            int i = 0;
-            while (i < tokens.length) {
-                String token = tokens[i++];
-                if (token.equals("M")) {
-                    float x = Float.valueOf(tokens[i++]);
-                    float y = Float.valueOf(tokens[i++]);
-                    p.moveTo(x, y);
-                } else if (token.equals("L")) {
-                    float x = Float.valueOf(tokens[i++]);
-                    float y = Float.valueOf(tokens[i++]);
-                    p.lineTo(x, y);
-                } else if (token.equals("C")) {
-                    float x1 = Float.valueOf(tokens[i++]);
-                    float y1 = Float.valueOf(tokens[i++]);
-                    float x2 = Float.valueOf(tokens[i++]);
-                    float y2 = Float.valueOf(tokens[i++]);
-                    float x3 = Float.valueOf(tokens[i++]);
-                    float y3 = Float.valueOf(tokens[i++]);
-                    p.cubicTo(x1, y1, x2, y2, x3, y3);
-                } else if (token.equals("z")) {
-                    p.close();
-                } else {
-                    throw new RuntimeException("unknown command [" + token + "]");
-                }
-            }
-        } catch (IndexOutOfBoundsException e) {
-            throw new RuntimeException("bad data ", e);
-        }
-    }
-
     private void measurePath() {
-        mPath.reset();
-        readPath(mPathString, mPath);
-
-        mPath.computeBounds(mTmpRectF, true);
-        mMatrix.setScale(mBounds.width() / mTmpRectF.width(), mBounds.height() / mTmpRectF.height(), 0f, 0f);
-        mMatrix.postTranslate(mBounds.left, mBounds.top);
-        mPath.transform(mMatrix);
-
-        mPathMeasure.setPath(mPath, false);
-    }
-
-    /**
-     * Finds the distance to the point on the curve at position x (normalized 0f <= x <= 1f)
-     * @param value the normalized x value of the curve
-     * @param x the actual x coordinate to measure against
-     * @param y the actual y coordinate to measure against
-     * @return the square of the distance
-     */
-    private float distance2(float value, float x, float y) {
-        mPathMeasure.getPosTan(value * mPathMeasure.getLength(), mTmpPoint, null);
-        float dx = mTmpPoint[0] - x;
-        float dy = mTmpPoint[1] - y;
-        return (dx * dx) + (dy * dy);
-    }
-
-    /** Find the ~closest point on the Path to a point you supply.
-     * returns: The parameter x representing the x location of the closest line on the Path
-     */
-    private float closestPoint(final float x, final float y) {
-        int scans = 25; // More scans -> better chance of being correct
-        int mindex = scans;
-        float min = Float.MAX_VALUE;
-        for (int i = scans+1; i > 0; i--) {
-            float d2 = distance2(i * 1f / scans, x, y);
-            if (d2 < min) {
-                min = d2;
-                mindex = i;
-            }
-        }
-        float t0 = Math.max((mindex - 1f) / scans, 0f);
-        float t1 = Math.min((mindex + 1f) / scans, 1f);
-        Func1 d2ForT = new Func1() {
-            @Override
-            public float ƒ(float v) {
-                return distance2(v, x, y);
-            }
-        };
-        return localMinimum(t0, t1, d2ForT, (float)1e-4);
-    }
-
-    /** Find a minimum point for a bounded function. May be a local minimum.
-     * minX   : the smallest input value
-     * maxX   : the largest input value
-     * ƒ      : a function that returns a value `y` given an `x`
-     * ε      : how close in `x` the bounds must be before returning
-     * returns: the `x` value that produces the smallest `y`
-     */
-    private float localMinimum(float minX, float maxX, Func1 ƒ, float ε) {
-        float m = minX;
-        float n = maxX;
-        float k = minX;
-        while ((n - m) > ε) {
-            k = (n + m) / 2;
-            if (ƒ.ƒ(k-ε)<ƒ.ƒ(k+ε)) {
-                n=k;
-            }
-            else {
-                m=k;
-            }
-        }
-        return k;
-    }
-
-    private interface Func1 {
-        float ƒ(float x);
+        float spacing = AUTO_SAMPLE_SPACING_DP * getResources().getDisplayMetrics().density;
+        mGeometry = mPathString == null
+            ? PathGeometry.EMPTY
+            : PathGeometryCache.get(mPathString, mBounds, mResolution, spacing);
+        invalidateTrack();
     }
 
 }
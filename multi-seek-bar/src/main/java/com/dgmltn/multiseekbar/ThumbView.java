@@ -2,15 +2,17 @@ package com.dgmltn.multiseekbar;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
-import java.util.ArrayList;
 
 import android.animation.ObjectAnimator;
 import android.content.Context;
 import android.content.res.ColorStateList;
 import android.content.res.TypedArray;
+import android.graphics.Bitmap;
 import android.graphics.Color;
 import android.graphics.drawable.Drawable;
+import android.os.CancellationSignal;
 import android.support.annotation.IntDef;
+import android.support.annotation.WorkerThread;
 import android.support.v4.content.ContextCompat;
 import android.util.AttributeSet;
 import android.util.StateSet;
@@ -18,6 +20,8 @@ import android.view.View;
 import android.widget.ImageView;
 
 import com.dgmltn.multiseekbar.internal.AnimatedPinDrawable;
+import com.dgmltn.multiseekbar.internal.ListenerArray;
+import com.dgmltn.multiseekbar.internal.PreviewLoader;
 import com.dgmltn.multiseekbar.internal.Utils;
 
 /**
@@ -47,9 +51,16 @@ public class ThumbView extends ImageView {
 
 	Drawable drawable = null;
 	float value = -1f;
+	// The value in double precision; value is this rounded to a float
+	double exactValue = -1d;
 	private String customText = null;
 	boolean useCustomText = false;
 
+	private static final float DEFAULT_PREVIEW_BUCKET = 1f;
+	private static final int DEFAULT_PREVIEW_CACHE_BYTES = 4 * 1024 * 1024;
+
+	private PreviewLoader previewLoader = null;
+
 	public ThumbView(Context context, AttributeSet attrs) {
 		super(context, attrs);
 
@@ -195,6 +206,81 @@ public class ThumbView extends ImageView {
 		updateDrawableText();
 	}
 
+	/**
+	 * Shows previews from {@code provider} in the pin while the thumb is pressed, e.g. video
+	 * frames while scrubbing. Values are grouped in buckets of 1, and up to 4MB of previews
+	 * are cached. Only the {@link #STYLE_PIN pin} style shows them. Pass null to stop.
+	 *
+	 * @see #setPreviewProvider(PreviewProvider, float, int)
+	 */
+	public void setPreviewProvider(PreviewProvider provider) {
+		setPreviewProvider(provider, DEFAULT_PREVIEW_BUCKET, DEFAULT_PREVIEW_CACHE_BYTES);
+	}
+
+	/**
+	 * Like {@link #setPreviewProvider(PreviewProvider)}.
+	 *
+	 * @param bucketSize    the range of values sharing a preview: values are rounded to the
+	 *                      nearest multiple of it before being passed to the provider
+	 * @param maxCacheBytes the most bytes of bitmaps to keep for this thumb
+	 */
+	public void setPreviewProvider(PreviewProvider provider, float bucketSize, int maxCacheBytes) {
+		if (previewLoader != null) {
+			previewLoader.cancel();
+			previewLoader.clearCache();
+			showPreview(null);
+		}
+		previewLoader = provider == null ? null
+			: new PreviewLoader(provider, bucketSize, maxCacheBytes, new PreviewLoader.Callback() {
+				@Override
+				public void onPreview(Bitmap preview, boolean exact) {
+					showPreview(preview);
+				}
+			});
+		if (previewLoader != null && isPressed()) {
+			previewLoader.request(value);
+		}
+	}
+
+	/**
+	 * Forgets the cached previews, e.g. when the media behind them changed.
+	 */
+	public void clearPreviewCache() {
+		if (previewLoader != null) {
+			previewLoader.reset();
+			previewLoader.clearCache();
+		}
+	}
+
+	private void showPreview(Bitmap preview) {
+		if (drawable instanceof AnimatedPinDrawable) {
+			((AnimatedPinDrawable) drawable).setPreview(preview);
+		}
+	}
+
+	@Override
+	public void setPressed(boolean pressed) {
+		boolean changed = pressed != isPressed();
+		super.setPressed(pressed);
+		if (previewLoader != null && changed) {
+			if (pressed) {
+				previewLoader.request(value);
+			}
+			else {
+				// Nothing to show once the pin collapses
+				previewLoader.reset();
+			}
+		}
+	}
+
+	@Override
+	protected void onDetachedFromWindow() {
+		super.onDetachedFromWindow();
+		if (previewLoader != null) {
+			previewLoader.reset();
+		}
+	}
+
 	public void setTextColor(int color) {
 		if (drawable != null && drawable instanceof AnimatedPinDrawable) {
 			((AnimatedPinDrawable) drawable).setTextColor(color);
@@ -206,37 +292,51 @@ public class ThumbView extends ImageView {
 	}
 
 	public void setValue(float value) {
-		if (this.value == value) {
+		setExactValue(value);
+	}
+
+	/**
+	 * Returns the value in double precision, as last set with {@link #setExactValue(double)}.
+	 */
+	public double getExactValue() {
+		return exactValue;
+	}
+
+	/**
+	 * Sets the value in double precision, for bars whose values are too large for a float to
+	 * resolve, like a {@link HorizontalSeekBar} timeline. {@link #getValue()} returns it rounded
+	 * to a float. Listeners are notified even when only the extra precision changed.
+	 */
+	public void setExactValue(double value) {
+		if (this.exactValue == value && this.value == (float) value) {
 			return;
 		}
 
 		float oldVal = this.value;
-		this.value = value;
+		this.exactValue = value;
+		this.value = (float) value;
 
 		// Notify listeners before .setText, because one thing the listeners
 		// might want to do is set custom text.
-		if (listeners != null) {
-			for (OnValueChangedListener l : listeners) {
-				l.onValueChange(this, oldVal, value);
-			}
+		OnValueChangedListener[] ls = listeners.get();
+		for (int i = 0; i < ls.length; i++) {
+			ls[i].onValueChange(this, oldVal, this.value);
 		}
 
 		updateDrawableText();
+		if (previewLoader != null && isPressed()) {
+			previewLoader.request(this.value);
+		}
 	}
 
-	private ArrayList<OnValueChangedListener> listeners;
+	private final ListenerArray<OnValueChangedListener> listeners = new ListenerArray<>(OnValueChangedListener.class);
 
 	public void addOnValueChangedListener(OnValueChangedListener listener) {
-		if (listeners == null) {
-			listeners = new ArrayList<>();
-		}
 		listeners.add(listener);
 	}
 
 	public void removeOnValueChangedListener(OnValueChangedListener listener) {
-		if (listeners != null) {
-			listeners.remove(listener);
-		}
+		listeners.remove(listener);
 	}
 
 	public static ColorStateList generateDefaultColorStateListFromTheme(Context context) {
@@ -255,6 +355,22 @@ public class ThumbView extends ImageView {
 		return new ColorStateList(states, colors);
 	}
 
+	/**
+	 * Supplies the previews shown in the pin while scrubbing.
+	 */
+	public interface PreviewProvider {
+		/**
+		 * Loads the preview for {@code value}, on a background thread. Long loads should
+		 * check {@code signal} and give up once it is cancelled, which happens as soon as the
+		 * finger moves to another bucket; they may throw
+		 * {@link android.os.OperationCanceledException}.
+		 *
+		 * @return the preview, or null if there is none
+		 */
+		@WorkerThread
+		Bitmap loadPreview(float value, CancellationSignal signal);
+	}
+
 	public interface OnValueChangedListener {
 		/**
 		 * Called upon a change of the current value.
@@ -0,0 +1,99 @@
+package com.dgmltn.multiseekbar;
+
+/**
+ * Maps a bar value to a position along the bar. Both are normalized: {@code t} is the value
+ * divided by the bar's max, and the result is the fraction of the bar's length at which that
+ * value is drawn. Implementations must be monotonically increasing, with
+ * {@code toPosition(0) == 0} and {@code toPosition(1) == 1}.
+ * <p>
+ * Bars don't evaluate the scale on every query. They sample it into a lookup table once,
+ * and interpolate both directions from that table.
+ */
+public abstract class ValueScale {
+
+	/**
+	 * @param t the normalized value, between 0 and 1
+	 * @return the normalized position along the bar, between 0 and 1
+	 */
+	public abstract float toPosition(float t);
+
+	/**
+	 * The default: values are spread evenly along the bar.
+	 */
+	public static ValueScale linear() {
+		return LINEAR;
+	}
+
+	/**
+	 * Gives more room to low values, like a frequency axis:
+	 * {@code position = log(1 + k t) / log(1 + k)}.
+	 *
+	 * @param k how strongly low values are expanded; must be positive
+	 */
+	public static ValueScale logarithmic(final float k) {
+		if (k <= 0f) {
+			throw new IllegalArgumentException("k must be positive");
+		}
+		final double denominator = Math.log1p(k);
+		return new ValueScale() {
+			@Override
+			public float toPosition(float t) {
+				return (float) (Math.log1p(k * t) / denominator);
+			}
+		};
+	}
+
+	/**
+	 * Gives more room to high values; the inverse of {@link #logarithmic(float)}:
+	 * {@code position = (e^(k t) - 1) / (e^k - 1)}.
+	 *
+	 * @param k how strongly high values are expanded; must be positive
+	 */
+	public static ValueScale exponential(final float k) {
+		if (k <= 0f) {
+			throw new IllegalArgumentException("k must be positive");
+		}
+		final double denominator = Math.expm1(k);
+		return new ValueScale() {
+			@Override
+			public float toPosition(float t) {
+				return (float) (Math.expm1(k * t) / denominator);
+			}
+		};
+	}
+
+	/**
+	 * Linear between control points. {@code values[i]} (normalized) is drawn at
+	 * {@code positions[i]} (normalized). Both arrays must be increasing, start at 0 and end at 1.
+	 */
+	public static ValueScale piecewiseLinear(float[] values, float[] positions) {
+		if (values.length != positions.length || values.length < 2) {
+			throw new IllegalArgumentException("need at least two matching control points");
+		}
+		for (int i = 1; i < values.length; i++) {
+			if (values[i] <= values[i - 1] || positions[i] < positions[i - 1]) {
+				throw new IllegalArgumentException("control points must be increasing");
+			}
+		}
+		final float[] v = values.clone();
+		final float[] p = positions.clone();
+		return new ValueScale() {
+			@Override
+			public float toPosition(float t) {
+				int i = 1;
+				while (i < v.length - 1 && t > v[i]) {
+					i++;
+				}
+				float f = (t - v[i - 1]) / (v[i] - v[i - 1]);
+				return p[i - 1] + f * (p[i] - p[i - 1]);
+			}
+		};
+	}
+
+	private static final ValueScale LINEAR = new ValueScale() {
+		@Override
+		public float toPosition(float t) {
+			return t;
+		}
+	};
+}
@@ -0,0 +1,212 @@
+package com.dgmltn.multiseekbar;
+
+import android.support.annotation.IntDef;
+
+import com.dgmltn.multiseekbar.internal.ListenerArray;
+import com.dgmltn.multiseekbar.internal.MinMaxPyramid;
+
+import java.io.IOException;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Audio samples (or any other series) for {@link HorizontalSeekBar} to draw behind its track,
+ * with a {@link MinMaxPyramid} so that the extremes of any range of frames are found without
+ * reading all of them: drawing costs about the same for a few thousand frames as for tens of
+ * millions, at any zoom.
+ * <p>
+ * Samples either live in memory, fed incrementally with {@link #append}, which only updates
+ * the part of the pyramid the new frames fall in, or are read from a memory-mapped file of
+ * little-endian PCM with {@link #map}. Samples are in [-1, 1]; frames of several interleaved
+ * channels are reduced to the extremes across channels.
+ * <p>
+ * Like the views drawing it, a waveform must only be used from the UI thread, except that a
+ * mapped waveform may be created on any thread: {@link #map} reads the whole file once.
+ */
+public class Waveform {
+
+	/**
+	 * Notified after frames are appended.
+	 */
+	public interface OnWaveformChangedListener {
+		void onWaveformChanged(Waveform waveform);
+	}
+
+	@Retention(RetentionPolicy.SOURCE)
+	@IntDef({ FORMAT_PCM_16, FORMAT_FLOAT_32 })
+	public @interface Format {
+	}
+
+	/**
+	 * Signed 16 bit little-endian samples.
+	 */
+	public static final int FORMAT_PCM_16 = 0;
+	/**
+	 * 32 bit little-endian floats.
+	 */
+	public static final int FORMAT_FLOAT_32 = 1;
+
+	// In memory samples are kept in chunks, so appending never copies earlier samples
+	private static final int CHUNK_SHIFT = 16;
+	private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+	private final int channels;
+	private long frames = 0;
+
+	private float[][] chunks = new float[0][];
+
+	// Mapped file, or null for in memory samples
+	private final ByteBuffer mapped;
+	@Format
+	private final int format;
+
+	private final MinMaxPyramid pyramid = new MinMaxPyramid();
+
+	private final ListenerArray<OnWaveformChangedListener> listeners =
+		new ListenerArray<>(OnWaveformChangedListener.class);
+
+	/**
+	 * Creates an empty waveform, to be fed with {@link #append}.
+	 *
+	 * @param channels the number of interleaved channels per frame
+	 */
+	public Waveform(int channels) {
+		this(channels, null, FORMAT_FLOAT_32);
+	}
+
+	private Waveform(int channels, ByteBuffer mapped, @Format int format) {
+		if (channels < 1) {
+			throw new IllegalArgumentException("channels must be at least 1");
+		}
+		this.channels = channels;
+		this.mapped = mapped;
+		this.format = format;
+	}
+
+	/**
+	 * Maps {@code size} bytes of a file of raw interleaved samples, starting at
+	 * {@code position}, and builds the pyramid for them. The samples are read through the
+	 * mapping, never copied to the heap.
+	 *
+	 * @throws IllegalArgumentException if {@code size} is over {@link Integer#MAX_VALUE}
+	 */
+	public static Waveform map(FileChannel channel, long position, long size, @Format int format, int channels)
+		throws IOException {
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("can't map more than 2GB: " + size);
+		}
+		if (format != FORMAT_PCM_16 && format != FORMAT_FLOAT_32) {
+			throw new IllegalArgumentException("unknown format: " + format);
+		}
+		ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		Waveform waveform = new Waveform(channels, buffer, format);
+		int bytesPerFrame = (format == FORMAT_PCM_16 ? 2 : 4) * channels;
+		waveform.frames = size / bytesPerFrame;
+		waveform.pyramid.extend(waveform.source, waveform.frames);
+		return waveform;
+	}
+
+	public int getChannelCount() {
+		return channels;
+	}
+
+	public long getFrameCount() {
+		return frames;
+	}
+
+	/**
+	 * Appends {@code count} samples of interleaved frames; {@code count} must be a whole
+	 * number of frames.
+	 *
+	 * @throws IllegalStateException for a mapped waveform
+	 */
+	public void append(float[] samples, int offset, int count) {
+		if (mapped != null) {
+			throw new IllegalStateException("a mapped waveform can't be appended to");
+		}
+		if (count % channels != 0) {
+			throw new IllegalArgumentException("count must be a multiple of the channel count");
+		}
+		if (count == 0) {
+			return;
+		}
+
+		long at = frames * channels;
+		int copied = 0;
+		while (copied < count) {
+			long index = at + copied;
+			int chunk = (int) (index >>> CHUNK_SHIFT);
+			int within = (int) (index & (CHUNK_SIZE - 1));
+			if (chunk >= chunks.length) {
+				float[][] grown = new float[Math.max(4, chunks.length * 2)][];
+				System.arraycopy(chunks, 0, grown, 0, chunks.length);
+				chunks = grown;
+			}
+			if (chunks[chunk] == null) {
+				chunks[chunk] = new float[CHUNK_SIZE];
+			}
+			int n = Math.min(count - copied, CHUNK_SIZE - within);
+			System.arraycopy(samples, offset + copied, chunks[chunk], within, n);
+			copied += n;
+		}
+		frames += count / channels;
+		pyramid.extend(source, frames);
+
+		OnWaveformChangedListener[] l = listeners.get();
+		for (int i = 0; i < l.length; i++) {
+			l[i].onWaveformChanged(this);
+		}
+	}
+
+	/**
+	 * Writes the minimum and maximum sample of frames {@code from} (inclusive) to {@code to}
+	 * (exclusive) into {@code out[0]} and {@code out[1]}, reading a number of values that
+	 * doesn't grow with the length of the range.
+	 *
+	 * @return false, leaving {@code out} untouched, if the range holds no frame
+	 */
+	public boolean getMinMax(long from, long to, float[] out) {
+		return pyramid.getMinMax(source, from, to, out);
+	}
+
+	public void addOnWaveformChangedListener(OnWaveformChangedListener l) {
+		listeners.add(l);
+	}
+
+	public void removeOnWaveformChangedListener(OnWaveformChangedListener l) {
+		listeners.remove(l);
+	}
+
+	private float sample(long index) {
+		if (mapped == null) {
+			return chunks[(int) (index >>> CHUNK_SHIFT)][(int) (index & (CHUNK_SIZE - 1))];
+		}
+		if (format == FORMAT_PCM_16) {
+			return mapped.getShort((int) (index * 2)) / 32768f;
+		}
+		return mapped.getFloat((int) (index * 4));
+	}
+
+	private final MinMaxPyramid.Source source = new MinMaxPyramid.Source() {
+		@Override
+		public void getMinMax(long from, long to, float[] out) {
+			float min = Float.MAX_VALUE;
+			float max = -Float.MAX_VALUE;
+			for (long i = from * channels, end = to * channels; i < end; i++) {
+				float s = sample(i);
+				if (s < min) {
+					min = s;
+				}
+				if (s > max) {
+					max = s;
+				}
+			}
+			out[0] = min;
+			out[1] = max;
+		}
+	};
+}
@@ -3,7 +3,6 @@ package com.dgmltn.multiseekbar.internal;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 
-import android.animation.ObjectAnimator;
 import android.content.Context;
 import android.content.res.ColorStateList;
 import android.content.res.Resources;
@@ -11,19 +10,23 @@ import android.content.res.TypedArray;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
+import android.graphics.Path;
 import android.graphics.PointF;
 import android.graphics.drawable.Drawable;
 import android.support.annotation.IntDef;
+import android.support.v4.content.ContextCompat;
+import android.os.SystemClock;
 import android.util.AttributeSet;
 import android.util.StateSet;
+import android.view.Choreographer;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewParent;
-import android.view.animation.DecelerateInterpolator;
 
 import com.dgmltn.multiseekbar.R;
 import com.dgmltn.multiseekbar.ThumbView;
+import com.dgmltn.multiseekbar.ValueScale;
 
 /**
  * Created by doug on 11/1/15.
@@ -41,13 +44,63 @@ public abstract class AbsMultiSeekBar extends ViewGroup implements ThumbView.OnV
 	public static final int STYLE_CONTINUOUS = 0;
 	public static final int STYLE_DISCRETE = 1;
 
+	@Retention(RetentionPolicy.SOURCE)
+	@IntDef({ RANGES_AUTO, RANGES_PAIRS, RANGES_NONE, RANGES_CUSTOM })
+	public @interface RangeMode {
+	}
+
+	/**
+	 * One thumb: from the start of the bar to the thumb. Two thumbs: between them.
+	 * More thumbs: like {@link #RANGES_PAIRS}.
+	 */
+	public static final int RANGES_AUTO = 0;
+	/**
+	 * Between thumbs (0, 1), (2, 3), (4, 5)...
+	 */
+	public static final int RANGES_PAIRS = 1;
+	public static final int RANGES_NONE = 2;
+	/**
+	 * Between the pairs given to {@link #setRanges(int[])}.
+	 */
+	public static final int RANGES_CUSTOM = 3;
+
+	/**
+	 * May be used in {@link #setRanges(int[])} in place of a thumb index, for the start of the bar.
+	 */
+	public static final int RANGE_BAR_START = -1;
+	/**
+	 * May be used in {@link #setRanges(int[])} in place of a thumb index, for the end of the bar.
+	 */
+	public static final int RANGE_BAR_END = -2;
+
+	@Retention(RetentionPolicy.SOURCE)
+	@IntDef({ DISPATCH_IMMEDIATE, DISPATCH_PER_FRAME })
+	public @interface DispatchMode {
+	}
+
+	/**
+	 * {@link OnValuesChangedListener}s are notified as soon as values change.
+	 */
+	public static final int DISPATCH_IMMEDIATE = 0;
+	/**
+	 * {@link OnValuesChangedListener}s are notified at most once per frame, at the frame
+	 * boundary, no matter how many times values changed during the frame.
+	 */
+	public static final int DISPATCH_PER_FRAME = 1;
+
 	// Bar properties
 	private boolean hasTicks = false;
+	private int majorTickInterval = 0;
+	private boolean cacheTrack = true;
 	private
 	@SliderStyle
 	int sliderStyle = STYLE_CONTINUOUS;
 	protected int max = 100;
 	protected int thumbs = 1;
+	private
+	@RangeMode
+	int rangeMode = RANGES_AUTO;
+	private int[] rangePairs = new int[0];
 
 	// Colors
 	private ColorStateList trackColor;
@@ -61,17 +114,25 @@ public abstract class AbsMultiSeekBar extends ViewGroup implements ThumbView.OnV
 	private int thumbTextColor = DEFAULT_TEXT_COLOR;
 	private Drawable thumbDrawable = null;
 
+	// 48dp touch region
+	private final float touchRadius;
+
 	public AbsMultiSeekBar(Context context, AttributeSet attrs) {
 		super(context, attrs);
 		setClipToPadding(false);
 		setClipChildren(false);
 		setWillNotDraw(false);
 
+		touchRadius = getResources().getDimension(R.dimen.default_touch_radius);
+
 		if (attrs != null) {
 			TypedArray ta = context.obtainStyledAttributes(attrs, R.styleable.AbsMultiSeekBar, 0, 0);
 			max = ta.getInteger(R.styleable.AbsMultiSeekBar_max, max);
 			thumbs = ta.getInteger(R.styleable.AbsMultiSeekBar_thumbs, thumbs);
 			hasTicks = ta.getBoolean(R.styleable.AbsMultiSeekBar_hasTicks, hasTicks);
+			majorTickInterval = ta.getInteger(R.styleable.AbsMultiSeekBar_majorTickInterval, majorTickInterval);
+			cacheTrack = ta.getBoolean(R.styleable.AbsMultiSeekBar_cacheTrack, cacheTrack);
+			rangeMode = validateRangeMode(ta.getInt(R.styleable.AbsMultiSeekBar_ranges, rangeMode));
 			sliderStyle = validateSliderStyle(ta.getInt(R.styleable.AbsMultiSeekBar_style, sliderStyle));
 
 			if (ta.hasValue(R.styleable.AbsMultiSeekBar_trackColor)) {
@@ -109,6 +170,12 @@ public abstract class AbsMultiSeekBar extends ViewGroup implements ThumbView.OnV
 		return s == STYLE_DISCRETE ? s : STYLE_CONTINUOUS;
 	}
 
+	private static
+	@RangeMode
+	int validateRangeMode(int m) {
+		return (m == RANGES_PAIRS || m == RANGES_NONE || m == RANGES_CUSTOM) ? m : RANGES_AUTO;
+	}
+
 	@Override
 	protected void onFinishInflate() {
 		super.onFinishInflate();
@@ -167,6 +234,88 @@ public abstract class AbsMultiSeekBar extends ViewGroup implements ThumbView.OnV
 
 	public void setMax(int max) {
 		this.max = max;
+		invalidateTrack();
+		requestLayout();
+	}
+
+	public ValueScale getValueScale() {
+		return valueScale;
+	}
+
+	/**
+	 * Sets how values are spread along the bar; {@code null} or {@link ValueScale#linear()}
+	 * spreads them evenly. The scale is sampled into lookup tables at the next layout, so
+	 * mapping values to positions and back never evaluates it directly.
+	 */
+	public void setValueScale(ValueScale scale) {
+		valueScale = scale == ValueScale.linear() ? null : scale;
+		scaleTableDirty = true;
+		invalidateTrack();
+		requestLayout();
+	}
+
+	public boolean hasTicks() {
+		return hasTicks;
+	}
+
+	public void setHasTicks(boolean hasTicks) {
+		this.hasTicks = hasTicks;
+		invalidateTrack();
+	}
+
+	public int getMajorTickInterval() {
+		return majorTickInterval;
+	}
+
+	/**
+	 * Every tick whose value is a multiple of {@code interval} is drawn larger than the
+	 * others, and survives decimation longer. 0 (the default) draws all ticks alike.
+	 */
+	public void setMajorTickInterval(int interval) {
+		majorTickInterval = interval;
+		invalidateTrack();
+	}
+
+	public
+	@RangeMode
+	int getRangeMode() {
+		return rangeMode;
+	}
+
+	public void setRangeMode(@RangeMode int mode) {
+		rangeMode = validateRangeMode(mode);
+		invalidate();
+	}
+
+	/**
+	 * Highlights the bar between each pair of thumbs in {@code pairs}, which holds the thumb
+	 * indices of each range one after the other: {@code {0, 1, 4, 5}} highlights the ranges
+	 * between thumbs 0 and 1, and between thumbs 4 and 5. {@link #RANGE_BAR_START} and
+	 * {@link #RANGE_BAR_END} stand for the ends of the bar. Switches to {@link #RANGES_CUSTOM}.
+	 */
+	public void setRanges(int[] pairs) {
+		if (pairs.length % 2 != 0) {
+			throw new IllegalArgumentException("ranges must come in pairs");
+		}
+		rangePairs = pairs.clone();
+		rangeMode = RANGES_CUSTOM;
+		invalidate();
+	}
+
+	public boolean getCacheTrack() {
+		return cacheTrack;
+	}
+
+	/**
+	 * When enabled (the default), the off track and the ticks are recorded once and replayed
+	 * on every frame, so dragging a thumb only redraws the active segment and the thumbs.
+	 */
+	public void setCacheTrack(boolean cacheTrack) {
+		this.cacheTrack = cacheTrack;
+		if (!cacheTrack) {
+			trackLayer.release();
+		}
+		invalidate();
 	}
 
 	/////////////////////////////////////////////////////////////////////////
@@ -188,35 +337,124 @@ public abstract class AbsMultiSeekBar extends ViewGroup implements ThumbView.OnV
 		setMeasuredDimension(widthMeasureSpec, heightMeasureSpec);
 	}
 
+	@Override
+	protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+		super.onSizeChanged(w, h, oldw, oldh);
+		invalidateTrack();
+	}
+
 	@Override
 	protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+		long start = metrics != null ? System.nanoTime() : 0;
+		ensureScaleTable();
+		placeThumbs();
+		placeVirtualThumbs();
+		if (metrics != null) {
+			metrics.layout.record(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Moves every thumb to the point on the bar matching its value, in a single pass,
+	 * and rebuilds the hit test index along the way.
+	 */
+	private void placeThumbs() {
+		ThumbHitIndex index = getHitIndex();
+		index.begin(getChildCount());
 		for (int i = 0; i < getChildCount(); i++) {
 			ThumbView child = getChildAt(i);
-			getPointOnBar(mTmpPointF, child.getValue());
-			mTmpPointF.x -= child.getMeasuredWidth() / 2f;
-			mTmpPointF.y -= child.getMeasuredHeight() / 2f;
-			child.layout(
-				(int) mTmpPointF.x,
-				(int) mTmpPointF.y,
-				(int) mTmpPointF.x + child.getMeasuredWidth(),
-				(int) mTmpPointF.y + child.getMeasuredHeight()
-			);
+			float value = child.getValue();
+			getThumbPointOnBar(mTmpPointF, child);
+			index.put(i, value, mTmpPointF.x, mTmpPointF.y);
+			onThumbPlaced(child, value, mTmpPointF);
+			int l = (int) (mTmpPointF.x - child.getMeasuredWidth() / 2f);
+			int t = (int) (mTmpPointF.y - child.getMeasuredHeight() / 2f);
+			child.layout(l, t, l + child.getMeasuredWidth(), t + child.getMeasuredHeight());
+		}
+		index.end();
+		hitIndexDirty = false;
+	}
+
+	/**
+	 * Moves every thumb, real and virtual, to its point on the bar without a layout pass.
+	 * For subclasses whose mapping from values to points changes often, like a scrolling
+	 * viewport.
+	 */
+	protected void relayoutThumbs() {
+		placeThumbs();
+		placeVirtualThumbs();
+		invalidate();
+	}
+
+	/**
+	 * Finds the point on the bar where {@code thumb} goes. By default, the point of its
+	 * {@link ThumbView#getValue() value}; bars resolving values finer than a float override
+	 * this to use {@link ThumbView#getExactValue()}.
+	 */
+	protected void getThumbPointOnBar(PointF out, ThumbView thumb) {
+		getPointOnBar(out, thumb.getValue());
+	}
+
+	/**
+	 * Like {@link #getNearestBarValue(float, float)}, in double precision, for bars whose
+	 * values are too large for a float to resolve. Returns the float value by default.
+	 */
+	protected double getNearestBarExactValue(float x, float y) {
+		return getNearestBarValue(x, y);
+	}
+
+	/**
+	 * The largest value of the bar in double precision, for bars whose domain outgrows the
+	 * int {@link #getMax() max}. Returns the max by default.
+	 */
+	protected double getExactMax() {
+		return max;
+	}
+
+	/**
+	 * Also remembers where a thumb was last seen among the children, so that a value change
+	 * finds its thumb in the hit index without searching the children.
+	 */
+	private static class ThumbLayoutParams extends MarginLayoutParams {
+		int index = -1;
+
+		ThumbLayoutParams(int width, int height) {
+			super(width, height);
 		}
+
+		ThumbLayoutParams(Context context, AttributeSet attrs) {
+			super(context, attrs);
+		}
+
+		ThumbLayoutParams(LayoutParams source) {
+			super(source);
+		}
+
+		ThumbLayoutParams(MarginLayoutParams source) {
+			super(source);
+		}
+	}
+
+	@Override
+	protected boolean checkLayoutParams(LayoutParams p) {
+		return p instanceof ThumbLayoutParams;
 	}
 
 	@Override
 	protected LayoutParams generateDefaultLayoutParams() {
-		return new MarginLayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT);
+		return new ThumbLayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT);
 	}
 
 	@Override
 	protected LayoutParams generateLayoutParams(LayoutParams p) {
-		return new MarginLayoutParams(p);
+		return p instanceof MarginLayoutParams
+			? new ThumbLayoutParams((MarginLayoutParams) p)
+			: new ThumbLayoutParams(p);
 	}
 
 	@Override
 	public LayoutParams generateLayoutParams(AttributeSet attrs) {
-		return new MarginLayoutParams(getContext(), attrs);
+		return new ThumbLayoutParams(getContext(), attrs);
 	}
 
 	@Override
@@ -224,186 +462,1176 @@ public abstract class AbsMultiSeekBar extends ViewGroup implements ThumbView.OnV
 		return (ThumbView) super.getChildAt(index);
 	}
 
+	@Override
+	public void onViewAdded(View child) {
+		super.onViewAdded(child);
+		hitIndexDirty = true;
+	}
+
+	@Override
+	public void onViewRemoved(View child) {
+		super.onViewRemoved(child);
+		hitIndexDirty = true;
+	}
+
 	@Override
 	public void onValueChange(ThumbView thumb, float oldVal, float newVal) {
-		getPointOnBar(mTmpPointF, newVal);
+		if (metrics != null) {
+			metrics.countValueChange();
+		}
+		if (batchDepth > 0) {
+			// Everything gets repositioned at once in endBatch()
+			batchChanged = true;
+			return;
+		}
+
+		getThumbPointOnBar(mTmpPointF, thumb);
+		if (!hitIndexDirty) {
+			getHitIndex().update(indexOfThumb(thumb), newVal, mTmpPointF.x, mTmpPointF.y);
+		}
+		onThumbPlaced(thumb, newVal, mTmpPointF);
 		float dx = mTmpPointF.x - thumb.getMeasuredWidth() / 2f - thumb.getLeft();
 		float dy = mTmpPointF.y - thumb.getMeasuredHeight() / 2f - thumb.getTop();
 		thumb.offsetLeftAndRight((int) dx);
 		thumb.offsetTopAndBottom((int) dy);
 		invalidate();
+		onValuesChanged();
+	}
+
+	/**
+	 * Called whenever a thumb is moved to its point on the bar, either during layout or
+	 * because its value changed. Subclasses can override this to orient the thumb.
+	 *
+	 * @param thumb    the thumb that was placed
+	 * @param value    the thumb's value
+	 * @param position the center of the thumb; must not be modified
+	 */
+	protected void onThumbPlaced(ThumbView thumb, float value, PointF position) {
 	}
 
 	/////////////////////////////////////////////////////////////////////////
-	// Taps
+	// Scale
 	/////////////////////////////////////////////////////////////////////////
 
-	private int expanded = -1;
-
-	@Override
-	public boolean onTouchEvent(MotionEvent event) {
-		super.onTouchEvent(event);
+	private ValueScale valueScale = null;
+	private ScaleTable scaleTable = null;
+	private boolean scaleTableDirty = false;
 
-		// If this View is not enabled, don't allow for touch interactions.
-		if (!isEnabled()) {
-			return false;
+	private void ensureScaleTable() {
+		if (!scaleTableDirty) {
+			return;
 		}
-
-		switch (event.getAction()) {
-
-		case MotionEvent.ACTION_DOWN:
-			float dmin = Float.MAX_VALUE;
-			expanded = -1;
-			for (int i = 0; i < getChildCount(); i++) {
-				ThumbView thumb = getChildAt(i);
-				if (!thumb.isClickable()) {
-					continue;
-				}
-				float d = distance(thumb.getValue(), event.getX(), event.getY());
-				if (d < dmin) {
-					dmin = d;
-					// 48dp touch region
-					if (d <= getResources().getDimension(R.dimen.default_touch_radius)) {
-						expanded = i;
-					}
-				}
-			}
-			if (expanded > -1) {
-				ThumbView thumb = getChildAt(expanded);
-				thumb.setPressed(true);
-				cancelLongPress();
-				attemptClaimDrag();
-				onStartTrackingTouch();
-			}
-			break;
-
-		case MotionEvent.ACTION_MOVE:
-			if (expanded > -1) {
-				float value = getNearestBarValue(event.getX(), event.getY());
-				getChildAt(expanded).setValue(value);
-			}
-			break;
-
-		case MotionEvent.ACTION_UP:
-		case MotionEvent.ACTION_CANCEL:
-			if (expanded > -1) {
-				ThumbView thumb = getChildAt(expanded);
-				thumb.setPressed(false);
-				onStopTrackingTouch();
-				expanded = -1;
-				if (sliderStyle == STYLE_DISCRETE) {
-					float value = Math.round(thumb.getValue());
-					ObjectAnimator anim = ObjectAnimator.ofFloat(thumb, "value", value).setDuration(100);
-					anim.setInterpolator(new DecelerateInterpolator());
-					anim.start();
-				}
-			}
-			break;
+		scaleTableDirty = false;
+		if (valueScale == null) {
+			scaleTable = null;
+			return;
 		}
+		if (scaleTable == null) {
+			scaleTable = new ScaleTable(ScaleTable.DEFAULT_RESOLUTION);
+		}
+		scaleTable.build(valueScale);
+	}
 
-		return true;
+	/**
+	 * Maps a bar value to the fraction of the bar's length at which it is drawn, according
+	 * to the value scale. Subclasses use this in place of {@code value / max}.
+	 */
+	protected float valueToFraction(float value) {
+		float t = max == 0 ? 0f : value / max;
+		if (valueScale == null) {
+			return t;
+		}
+		ensureScaleTable();
+		return scaleTable.toPosition(t);
 	}
 
-	@Override
-	public boolean onInterceptTouchEvent(MotionEvent ev) {
-		return true;
+	/**
+	 * Maps a fraction of the bar's length back to a bar value; the inverse of
+	 * {@link #valueToFraction(float)}. Subclasses use this in place of {@code fraction * max}.
+	 */
+	protected float fractionToValue(float fraction) {
+		if (valueScale == null) {
+			return fraction * max;
+		}
+		ensureScaleTable();
+		return scaleTable.toValue(fraction) * max;
 	}
 
-	private float distance(float value, float x, float y) {
-		getPointOnBar(mTmpPointF, value);
-		float m = mTmpPointF.x - x;
-		float n = mTmpPointF.y - y;
-		return (float) Math.sqrt(m * m + n * n);
+	/////////////////////////////////////////////////////////////////////////
+	// Batches
+	/////////////////////////////////////////////////////////////////////////
+
+	private int batchDepth = 0;
+	private boolean batchChanged = false;
+	private boolean batchVirtualChanged = false;
+
+	/**
+	 * Starts a batch of value changes. Until the matching {@link #endBatch()}, changing the
+	 * value of any thumb will not move it, redraw the bar or notify the
+	 * {@link OnValuesChangedListener}. Batches may be nested.
+	 */
+	public void beginBatch() {
+		batchDepth++;
 	}
 
 	/**
-	 * Tries to claim the user's drag motion, and requests disallowing any
-	 * ancestors from stealing events in the drag.
-	 * https://android.googlesource.com/platform/frameworks/base/+/master/core/java/android/widget/AbsSeekBar.java
+	 * Ends a batch started with {@link #beginBatch()}. When the outermost batch ends and any
+	 * value changed, all thumbs are repositioned in one pass, the bar is invalidated once and
+	 * a single {@link OnValuesChangedListener#onValuesChanged} is sent.
 	 */
-	private void attemptClaimDrag() {
-		ViewParent parent = getParent();
-		if (parent != null) {
-			parent.requestDisallowInterceptTouchEvent(true);
+	public void endBatch() {
+		if (batchDepth == 0) {
+			throw new IllegalStateException("endBatch() called without beginBatch()");
+		}
+		batchDepth--;
+		if (batchDepth == 0 && (batchChanged || batchVirtualChanged)) {
+			if (batchChanged) {
+				placeThumbs();
+			}
+			if (batchVirtualChanged) {
+				placeVirtualThumbs();
+			}
+			batchChanged = false;
+			batchVirtualChanged = false;
+			invalidate();
+			onValuesChanged();
 		}
 	}
 
+	public boolean isInBatch() {
+		return batchDepth > 0;
+	}
+
 	/////////////////////////////////////////////////////////////////////////
-	// Rendering
+	// Virtual thumbs
 	/////////////////////////////////////////////////////////////////////////
 
-	protected Paint mTrackOffPaint;
-	protected Paint mTrackOnPaint;
-	protected Paint mTickPaint;
+	private VirtualThumbs virtualThumbs;
 
-	PointF mTmpPointF = new PointF();
+	private static final ThumbHitIndex.Filter ANY_THUMB = new ThumbHitIndex.Filter() {
+		@Override
+		public boolean isHittable(int id) {
+			return true;
+		}
+	};
 
-	protected void initTrack() {
-		Resources res = getResources();
+	private VirtualThumbs getVirtualThumbs() {
+		if (virtualThumbs == null) {
+			virtualThumbs = new VirtualThumbs(createHitIndex(touchRadius));
+		}
+		return virtualThumbs;
+	}
 
-		// Initialize the paint.
-		mTrackOffPaint = new Paint();
-		mTrackOffPaint.setAntiAlias(true);
-		mTrackOffPaint.setStyle(Paint.Style.STROKE);
-		mTrackOffPaint.setColor(trackColor.getColorForState(ENABLED_STATE_SET, trackColor.getDefaultColor()));
-		mTrackOffPaint.setStrokeWidth(res.getDimensionPixelSize(R.dimen.default_track_width));
+	/**
+	 * Sets the number of virtual thumbs. Virtual thumbs are not Views: the bar keeps their
+	 * values in a primitive array and draws them all with one shared drawable, which makes
+	 * thousands of them affordable. They live alongside the regular ThumbView children,
+	 * are drawn below them, and report their changes through the {@link OnValuesChangedListener}.
+	 * Existing values are kept; new virtual thumbs start at 0.
+	 */
+	public void setVirtualThumbCount(int count) {
+		VirtualThumbs vt = getVirtualThumbs();
+		if (vt.size() == count) {
+			return;
+		}
+		vt.resize(count);
+		if (vt.drawable == null) {
+			vt.drawable = createDefaultVirtualThumbDrawable();
+		}
+		if (expandedVirtual >= count) {
+			expandedVirtual = -1;
+		}
+		placeVirtualThumbs();
+		invalidate();
+	}
 
-		mTickPaint = new Paint();
-		mTickPaint.setAntiAlias(true);
-		mTickPaint.setColor(tickColor.getColorForState(ENABLED_STATE_SET, tickColor.getDefaultColor()));
+	public int getVirtualThumbCount() {
+		return virtualThumbs == null ? 0 : virtualThumbs.size();
+	}
 
-		// Initialize the paint, set values
-		mTrackOnPaint = new Paint();
-		mTrackOnPaint.setStrokeCap(Paint.Cap.ROUND);
-		mTrackOnPaint.setStyle(Paint.Style.STROKE);
-		mTrackOnPaint.setAntiAlias(true);
-		mTrackOnPaint.setColor(trackColor.getColorForState(SELECTED_STATE_SET, trackColor.getDefaultColor()));
-		mTrackOnPaint.setStrokeWidth(res.getDimensionPixelSize(R.dimen.default_track_width));
+	public float getVirtualThumbValue(int index) {
+		return getVirtualThumbs().getValue(index);
 	}
 
-	@Override
-	protected void onDraw(Canvas canvas) {
-		super.onDraw(canvas);
-		drawBar(canvas, mTrackOffPaint);
-		if (hasTicks) {
-			drawTicks(canvas);
+	public void setVirtualThumbValue(int index, float value) {
+		VirtualThumbs vt = getVirtualThumbs();
+		if (vt.getValue(index) == value) {
+			return;
 		}
-		if (getChildCount() == 1) {
-			drawConnectingLine(canvas, 0f, getChildAt(0).getValue(), mTrackOnPaint);
+		vt.setValue(index, value);
+		if (metrics != null) {
+			metrics.countValueChange();
 		}
-		else if (getChildCount() == 2) {
-			float min = Math.min(getChildAt(0).getValue(), getChildAt(1).getValue());
-			float max = Math.max(getChildAt(0).getValue(), getChildAt(1).getValue());
-			drawConnectingLine(canvas, min, max, mTrackOnPaint);
+
+		if (batchDepth > 0) {
+			batchVirtualChanged = true;
+			return;
 		}
+
+		getPointOnBar(mTmpPointF, value);
+		vt.setPoint(index, mTmpPointF.x, mTmpPointF.y);
+		vt.index.update(index, value, mTmpPointF.x, mTmpPointF.y);
+		invalidate();
+		onValuesChanged();
 	}
 
 	/**
-	 * Draws the tick marks on the bar.
-	 *
-	 * @param canvas Canvas to draw on; should be the Canvas passed into {#link
-	 *               View#onDraw()}
+	 * Replaces all virtual thumbs with one thumb per entry of {@code values}, in a single batch.
 	 */
-	protected void drawTicks(Canvas canvas) {
-		float radius = getResources().getDimension(R.dimen.default_tick_radius);
-
-		for (int i = 0; i <= max; i++) {
-			getPointOnBar(mTmpPointF, i);
-			canvas.drawCircle(mTmpPointF.x, mTmpPointF.y, radius, mTickPaint);
+	public void setVirtualThumbValues(float[] values) {
+		beginBatch();
+		try {
+			setVirtualThumbCount(values.length);
+			for (int i = 0; i < values.length; i++) {
+				setVirtualThumbValue(i, values[i]);
+			}
+		}
+		finally {
+			endBatch();
 		}
 	}
 
-	/////////////////////////////////////////////////////////////////////////
-	// OnSliderChangeListener
-	/////////////////////////////////////////////////////////////////////////
-
 	/**
-	 * A callback that notifies clients when the progress level has been
-	 * changed. This includes changes that were initiated by the user through a
-	 * touch gesture or arrow key/trackball as well as changes that were initiated
-	 * programmatically.
+	 * Sets the drawable shared by all virtual thumbs. It is drawn centered on each thumb at
+	 * its intrinsic size.
 	 */
-	public interface OnSliderChangeListener {
+	public void setVirtualThumbDrawable(Drawable drawable) {
+		getVirtualThumbs().drawable = drawable;
+		invalidate();
+	}
+
+	/**
+	 * Whether virtual thumbs can be dragged. When they can't, they are only markers.
+	 */
+	public void setVirtualThumbsClickable(boolean clickable) {
+		getVirtualThumbs().clickable = clickable;
+	}
+
+	public boolean getVirtualThumbsClickable() {
+		return virtualThumbs == null || virtualThumbs.clickable;
+	}
+
+	private Drawable createDefaultVirtualThumbDrawable() {
+		// Don't share state with the drawable handed to the ThumbView children
+		Drawable drawable = thumbDrawable != null && thumbDrawable.getConstantState() != null
+			? thumbDrawable.getConstantState().newDrawable(getResources()).mutate()
+			: ContextCompat.getDrawable(getContext(), R.drawable.seekbar_thumb_material_anim).mutate();
+		if (thumbColor != null) {
+			drawable.setTintList(thumbColor);
+		}
+		drawable.setState(ENABLED_STATE_SET);
+		return drawable;
+	}
+
+	private void placeVirtualThumbs() {
+		if (virtualThumbs == null) {
+			return;
+		}
+		VirtualThumbs vt = virtualThumbs;
+		int n = vt.size();
+		vt.index.begin(n);
+		for (int i = 0; i < n; i++) {
+			float value = vt.getValue(i);
+			getPointOnBar(mTmpPointF, value);
+			vt.setPoint(i, mTmpPointF.x, mTmpPointF.y);
+			vt.index.put(i, value, mTmpPointF.x, mTmpPointF.y);
+		}
+		vt.index.end();
+	}
+
+	/**
+	 * Returns the index of the virtual thumb within the touch radius of (x, y) that is
+	 * closer than {@code childDistance2}, or -1.
+	 */
+	private int findNearestVirtualThumb(float x, float y, float value, float childDistance2) {
+		if (virtualThumbs == null || !virtualThumbs.clickable || virtualThumbs.size() == 0) {
+			return -1;
+		}
+		int i = virtualThumbs.index.findNearest(x, y, value, touchRadius, ANY_THUMB);
+		return i > -1 && virtualThumbs.index.getLastDistanceSquared() < childDistance2 ? i : -1;
+	}
+
+	/////////////////////////////////////////////////////////////////////////
+	// Animations
+	/////////////////////////////////////////////////////////////////////////
+
+	private ThumbAnimator animator;
+
+	private final ThumbAnimator.Host animatorHost = new ThumbAnimator.Host() {
+		@Override
+		public void beginFrame() {
+			beginBatch();
+		}
+
+		@Override
+		public void setThumbValue(ThumbView thumb, double value) {
+			thumb.setExactValue(value);
+		}
+
+		@Override
+		public void setVirtualThumbValue(int index, float value) {
+			if (index < getVirtualThumbCount()) {
+				AbsMultiSeekBar.this.setVirtualThumbValue(index, value);
+			}
+		}
+
+		@Override
+		public void endFrame() {
+			endBatch();
+		}
+
+		@Override
+		public void onAnimationsFinished() {
+			maybeSettle();
+		}
+
+		@Override
+		public float getValueRange() {
+			return (float) getExactMax();
+		}
+	};
+
+	private ThumbAnimator getAnimator() {
+		if (animator == null) {
+			animator = new ThumbAnimator(animatorHost);
+		}
+		return animator;
+	}
+
+	/**
+	 * Moves a thumb to {@code target} with a spring. All the thumbs of a bar are animated
+	 * together from a single frame callback, in one batch per frame.
+	 *
+	 * @see #setSpring(float, float)
+	 */
+	public void animateValue(ThumbView thumb, float target) {
+		animateExactValue(thumb, target);
+	}
+
+	/**
+	 * Like {@link #animateValue(ThumbView, float)}, in double precision: the thumb lands on
+	 * {@code target} exactly, even on domains too long for a float to resolve.
+	 *
+	 * @see ThumbView#setExactValue(double)
+	 */
+	public void animateExactValue(ThumbView thumb, double target) {
+		getAnimator().springTo(thumb, thumb.getExactValue(), target);
+	}
+
+	/**
+	 * Moves a virtual thumb to {@code target} with a spring.
+	 */
+	public void animateVirtualThumbValue(int index, float target) {
+		getAnimator().springVirtualTo(index, getVirtualThumbValue(index), target);
+	}
+
+	/**
+	 * Lets a thumb coast at {@code velocity} (in values per second) until friction or the
+	 * ends of the bar stop it.
+	 */
+	public void flingValue(ThumbView thumb, float velocity) {
+		getAnimator().fling(thumb, thumb.getExactValue(), velocity, 0d, getExactMax());
+	}
+
+	/**
+	 * Stops animating a thumb, leaving it at its current value. If no other thumb is moving,
+	 * the values settle.
+	 */
+	public void cancelValueAnimation(ThumbView thumb) {
+		if (animator != null) {
+			animator.cancel(thumb);
+		}
+	}
+
+	/**
+	 * Configures the spring used by {@link #animateValue} and by snapping in discrete mode.
+	 *
+	 * @param stiffness    spring stiffness, in 1/s²
+	 * @param dampingRatio 1 for no overshoot, less for a bouncier spring
+	 */
+	public void setSpring(float stiffness, float dampingRatio) {
+		getAnimator().setSpring(stiffness, dampingRatio);
+	}
+
+	/////////////////////////////////////////////////////////////////////////
+	// Values
+	/////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Sets the values of the first {@code values.length} thumbs in a single batch.
+	 *
+	 * @see #beginBatch()
+	 */
+	public void setValues(float[] values) {
+		beginBatch();
+		try {
+			int n = Math.min(values.length, getChildCount());
+			for (int i = 0; i < n; i++) {
+				getChildAt(i).setValue(values[i]);
+			}
+		}
+		finally {
+			endBatch();
+		}
+	}
+
+	/**
+	 * Copies the values of all thumbs into {@code out}, allocating a new array if it is
+	 * {@code null} or too small.
+	 *
+	 * @return the array holding the values
+	 */
+	public float[] getValues(float[] out) {
+		int n = getChildCount();
+		if (out == null || out.length < n) {
+			out = new float[n];
+		}
+		for (int i = 0; i < n; i++) {
+			out[i] = getChildAt(i).getValue();
+		}
+		return out;
+	}
+
+	/////////////////////////////////////////////////////////////////////////
+	// Taps
+	/////////////////////////////////////////////////////////////////////////
+
+	private int expanded = -1;
+	private int expandedVirtual = -1;
+
+	private final TouchSampleBuffer touchSamples = new TouchSampleBuffer();
+	private boolean coalesceTouchEvents = true;
+	private boolean touchFramePending = false;
+	private double[] touchSampleValues = new double[0];
+
+	private final Choreographer.FrameCallback touchFrameCallback = new Choreographer.FrameCallback() {
+		@Override
+		public void doFrame(long frameTimeNanos) {
+			touchFramePending = false;
+			flushTouchSamples();
+		}
+	};
+
+	@Override
+	public boolean onTouchEvent(MotionEvent event) {
+		super.onTouchEvent(event);
+
+		// If this View is not enabled, don't allow for touch interactions.
+		if (!isEnabled()) {
+			return false;
+		}
+
+		switch (event.getAction()) {
+
+		case MotionEvent.ACTION_DOWN:
+			cancelTouchFrame();
+			touchSamples.clear();
+			float x = event.getX();
+			float y = event.getY();
+			float barValue = getNearestBarValue(x, y);
+			expanded = findNearestThumb(x, y, barValue);
+			float childDistance2 = expanded > -1 ? getHitIndex().getLastDistanceSquared() : Float.MAX_VALUE;
+			expandedVirtual = findNearestVirtualThumb(x, y, barValue, childDistance2);
+			if (expandedVirtual > -1) {
+				expanded = -1;
+				virtualThumbs.pressed = expandedVirtual;
+				if (animator != null) {
+					animator.cancelVirtual(expandedVirtual);
+				}
+				invalidate();
+			}
+			else if (expanded > -1) {
+				ThumbView thumb = getChildAt(expanded);
+				thumb.setPressed(true);
+				if (animator != null) {
+					animator.cancel(thumb);
+				}
+			}
+			if (isDragging()) {
+				cancelLongPress();
+				attemptClaimDrag();
+				onStartTrackingTouch();
+			}
+			break;
+
+		case MotionEvent.ACTION_MOVE:
+			if (isDragging()) {
+				touchSamples.addAll(event);
+				if (coalesceTouchEvents) {
+					scheduleTouchFrame();
+				}
+				else {
+					flushTouchSamples();
+				}
+			}
+			break;
+
+		case MotionEvent.ACTION_UP:
+		case MotionEvent.ACTION_CANCEL:
+			if (expanded > -1) {
+				// Apply whatever moves are still waiting for the next frame
+				flushTouchSamples();
+				ThumbView thumb = getChildAt(expanded);
+				thumb.setPressed(false);
+				onStopTrackingTouch();
+				expanded = -1;
+				if (sliderStyle == STYLE_DISCRETE) {
+					animateExactValue(thumb, Math.round(thumb.getExactValue()));
+				}
+			}
+			else if (expandedVirtual > -1) {
+				flushTouchSamples();
+				int index = expandedVirtual;
+				virtualThumbs.pressed = -1;
+				invalidate();
+				onStopTrackingTouch();
+				expandedVirtual = -1;
+				if (sliderStyle == STYLE_DISCRETE) {
+					animateVirtualThumbValue(index, Math.round(getVirtualThumbValue(index)));
+				}
+			}
+			maybeSettle();
+			break;
+		}
+
+		return true;
+	}
+
+	@Override
+	public boolean onInterceptTouchEvent(MotionEvent ev) {
+		return true;
+	}
+
+	@Override
+	protected void onDetachedFromWindow() {
+		super.onDetachedFromWindow();
+		cancelTouchFrame();
+		touchSamples.clear();
+		trackLayer.release();
+		if (animator != null) {
+			animator.end();
+		}
+		cancelValuesFrame();
+	}
+
+	/**
+	 * When enabled (the default), all the touch samples delivered during a frame, including
+	 * historical ones, are resolved into a single value change at the next frame boundary.
+	 * When disabled, every ACTION_MOVE updates the dragged thumb immediately.
+	 */
+	public void setCoalesceTouchEvents(boolean coalesce) {
+		if (!coalesce) {
+			flushTouchSamples();
+		}
+		coalesceTouchEvents = coalesce;
+	}
+
+	public boolean getCoalesceTouchEvents() {
+		return coalesceTouchEvents;
+	}
+
+	private void scheduleTouchFrame() {
+		if (!touchFramePending) {
+			touchFramePending = true;
+			Choreographer.getInstance().postFrameCallback(touchFrameCallback);
+		}
+	}
+
+	private void cancelTouchFrame() {
+		if (touchFramePending) {
+			touchFramePending = false;
+			Choreographer.getInstance().removeFrameCallback(touchFrameCallback);
+		}
+	}
+
+	/**
+	 * @return true while a thumb, real or virtual, follows the user's finger
+	 */
+	protected boolean isDragging() {
+		return expanded > -1 || expandedVirtual > -1;
+	}
+
+	/**
+	 * Resolves the buffered touch samples into one value for the dragged thumb.
+	 */
+	private void flushTouchSamples() {
+		cancelTouchFrame();
+		int n = touchSamples.size();
+		if (n == 0 || !isDragging()) {
+			touchSamples.clear();
+			return;
+		}
+
+		long eventTime = touchSamples.getTime(0);
+
+		double value;
+		if (mOnTouchSamplesListener != null) {
+			if (touchSampleValues.length < n) {
+				touchSampleValues = new double[Math.max(n, touchSampleValues.length * 2)];
+			}
+			for (int i = 0; i < n; i++) {
+				touchSampleValues[i] = getNearestBarExactValue(touchSamples.getX(i), touchSamples.getY(i));
+			}
+			int thumb = expanded > -1 ? expanded : -1 - expandedVirtual;
+			mOnTouchSamplesListener.onTouchSamples(this, thumb, touchSampleValues, touchSamples.getTimes(), n);
+			// The listener may have moved it
+			value = touchSampleValues[n - 1];
+		}
+		else {
+			value = getNearestBarExactValue(touchSamples.getLastX(), touchSamples.getLastY());
+		}
+		touchSamples.clear();
+
+		boolean changed;
+		if (expanded > -1) {
+			ThumbView thumb = getChildAt(expanded);
+			changed = thumb.getExactValue() != value;
+			thumb.setExactValue(value);
+		}
+		else {
+			changed = getVirtualThumbValue(expandedVirtual) != (float) value;
+			setVirtualThumbValue(expandedVirtual, (float) value);
+		}
+
+		// Samples that move nothing aren't drawn, so they have no latency to measure
+		if (changed && metrics != null && touchEventTime == 0) {
+			touchEventTime = eventTime;
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////////////
+	// Hit testing
+	/////////////////////////////////////////////////////////////////////////
+
+	private ThumbHitIndex hitIndex;
+	private boolean hitIndexDirty = true;
+
+	private final ThumbHitIndex.Filter clickableFilter = new ThumbHitIndex.Filter() {
+		@Override
+		public boolean isHittable(int id) {
+			ThumbView thumb = getChildAt(id);
+			return thumb.isClickable() && thumb.getVisibility() == VISIBLE;
+		}
+	};
+
+	/**
+	 * Creates the index used to find the thumb under a touch point. The default keeps thumbs
+	 * sorted by value, which works for bars where screen distance grows with value distance.
+	 * Bars where that is not true should return a spatial index instead.
+	 *
+	 * @param touchRadius the largest distance from a thumb at which it can be grabbed
+	 */
+	protected ThumbHitIndex createHitIndex(float touchRadius) {
+		return new SortedThumbIndex();
+	}
+
+	private ThumbHitIndex getHitIndex() {
+		if (hitIndex == null) {
+			hitIndex = createHitIndex(touchRadius);
+		}
+		return hitIndex;
+	}
+
+	/**
+	 * Returns the index of the clickable thumb within the touch radius of (x, y), or -1.
+	 *
+	 * @param value the bar value nearest to (x, y)
+	 */
+	private int findNearestThumb(float x, float y, float value) {
+		ThumbHitIndex index = getHitIndex();
+		if (hitIndexDirty) {
+			index.begin(getChildCount());
+			for (int i = 0; i < getChildCount(); i++) {
+				ThumbView child = getChildAt(i);
+				((ThumbLayoutParams) child.getLayoutParams()).index = i;
+				getThumbPointOnBar(mTmpPointF, child);
+				index.put(i, child.getValue(), mTmpPointF.x, mTmpPointF.y);
+			}
+			index.end();
+			hitIndexDirty = false;
+		}
+		return index.findNearest(x, y, value, touchRadius, clickableFilter);
+	}
+
+	/**
+	 * The index of {@code thumb} among the children, or -1. Constant time, unless children
+	 * were reordered since the hit index was built.
+	 */
+	private int indexOfThumb(ThumbView thumb) {
+		if (!(thumb.getLayoutParams() instanceof ThumbLayoutParams)) {
+			return -1;
+		}
+		ThumbLayoutParams lp = (ThumbLayoutParams) thumb.getLayoutParams();
+		int n = getChildCount();
+		if (lp.index < 0 || lp.index >= n || getChildAt(lp.index) != thumb) {
+			// Renumber them all at once, rather than searching for each one
+			for (int i = 0; i < n; i++) {
+				((ThumbLayoutParams) getChildAt(i).getLayoutParams()).index = i;
+			}
+			if (lp.index < 0 || lp.index >= n || getChildAt(lp.index) != thumb) {
+				return -1;
+			}
+		}
+		return lp.index;
+	}
+
+	/**
+	 * Tries to claim the user's drag motion, and requests disallowing any
+	 * ancestors from stealing events in the drag.
+	 * https://android.googlesource.com/platform/frameworks/base/+/master/core/java/android/widget/AbsSeekBar.java
+	 */
+	private void attemptClaimDrag() {
+		ViewParent parent = getParent();
+		if (parent != null) {
+			parent.requestDisallowInterceptTouchEvent(true);
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////////////
+	// Rendering
+	/////////////////////////////////////////////////////////////////////////
+
+	protected Paint mTrackOffPaint;
+	protected Paint mTrackOnPaint;
+	protected Paint mTickPaint;
+
+	private float tickRadius;
+	private float majorTickRadius;
+	private float tickMinSpacing;
+
+	// Tick centers as packed (x, y) pairs, ready for Canvas.drawPoints
+	private float[] minorTicks = new float[0];
+	private float[] majorTicks = new float[0];
+	private int minorTickCount = 0;
+	private int majorTickCount = 0;
+	private boolean ticksDirty = true;
+
+	private final TrackLayer trackLayer = new TrackLayer();
+
+	PointF mTmpPointF = new PointF();
+	private final Path mRangePath = new Path();
+	// The (from, to) bar values of the ranges being drawn
+	private float[] mRanges = new float[8];
+	private int mRangeCount = 0;
+	private final Path mTmpPath = new Path();
+
+	protected void initTrack() {
+		Resources res = getResources();
+
+		// Initialize the paint.
+		mTrackOffPaint = new Paint();
+		mTrackOffPaint.setAntiAlias(true);
+		mTrackOffPaint.setStyle(Paint.Style.STROKE);
+		mTrackOffPaint.setColor(trackColor.getColorForState(ENABLED_STATE_SET, trackColor.getDefaultColor()));
+		mTrackOffPaint.setStrokeWidth(res.getDimensionPixelSize(R.dimen.default_track_width));
+
+		tickRadius = res.getDimension(R.dimen.default_tick_radius);
+		majorTickRadius = res.getDimension(R.dimen.default_major_tick_radius);
+		tickMinSpacing = res.getDimension(R.dimen.default_tick_min_spacing);
+
+		mTickPaint = new Paint();
+		mTickPaint.setAntiAlias(true);
+		mTickPaint.setStrokeCap(Paint.Cap.ROUND);
+		mTickPaint.setColor(tickColor.getColorForState(ENABLED_STATE_SET, tickColor.getDefaultColor()));
+
+		// Initialize the paint, set values
+		mTrackOnPaint = new Paint();
+		mTrackOnPaint.setStrokeCap(Paint.Cap.ROUND);
+		mTrackOnPaint.setStyle(Paint.Style.STROKE);
+		mTrackOnPaint.setAntiAlias(true);
+		mTrackOnPaint.setColor(trackColor.getColorForState(SELECTED_STATE_SET, trackColor.getDefaultColor()));
+		mTrackOnPaint.setStrokeWidth(res.getDimensionPixelSize(R.dimen.default_track_width));
+	}
+
+	/**
+	 * Marks the static part of the bar (the off track and the ticks) as changed. Subclasses
+	 * must call this whenever the shape of the bar changes, other than by a size change.
+	 */
+	protected void invalidateTrack() {
+		ticksDirty = true;
+		trackLayer.invalidate();
+		invalidate();
+	}
+
+	/**
+	 * Returns true while the static part of the bar changes on every frame, like a timeline
+	 * being scrolled. The track is then drawn directly instead of being recorded into the
+	 * cache only to be thrown away on the next frame.
+	 */
+	protected boolean isTrackMoving() {
+		return false;
+	}
+
+	@Override
+	public void invalidate() {
+		if (metrics != null) {
+			metrics.countInvalidation();
+		}
+		super.invalidate();
+	}
+
+	@Override
+	protected void onDraw(Canvas canvas) {
+		long start = metrics != null ? System.nanoTime() : 0;
+		super.onDraw(canvas);
+		if (cacheTrack && !isTrackMoving()) {
+			if (!trackLayer.isValid()) {
+				drawTrack(trackLayer.beginRecording(getWidth(), getHeight()));
+				trackLayer.endRecording();
+			}
+			trackLayer.draw(canvas);
+		}
+		else {
+			drawTrack(canvas);
+		}
+		if (metrics != null) {
+			long t = System.nanoTime();
+			drawConnectingLines(canvas);
+			metrics.drawConnectingLines.record(System.nanoTime() - t);
+		}
+		else {
+			drawConnectingLines(canvas);
+		}
+		if (virtualThumbs != null) {
+			virtualThumbs.draw(canvas);
+		}
+
+		if (metrics != null) {
+			metrics.draw.record(System.nanoTime() - start);
+			if (touchEventTime != 0) {
+				metrics.touchLatency.record((SystemClock.uptimeMillis() - touchEventTime) * 1000000L);
+				touchEventTime = 0;
+			}
+		}
+	}
+
+	/**
+	 * Collects every highlighted range and draws them all with {@link #drawRanges}.
+	 */
+	private void drawConnectingLines(Canvas canvas) {
+		int n = getChildCount();
+		mRangeCount = 0;
+
+		switch (rangeMode) {
+		case RANGES_NONE:
+			return;
+		case RANGES_CUSTOM:
+			for (int i = 0; i + 1 < rangePairs.length; i += 2) {
+				addRange(rangeValue(rangePairs[i]), rangeValue(rangePairs[i + 1]));
+			}
+			break;
+		default:
+			if (rangeMode == RANGES_AUTO && n == 1) {
+				addRange(0f, getChildAt(0).getValue());
+				break;
+			}
+			for (int i = 0; i + 1 < n; i += 2) {
+				addRange(getChildAt(i).getValue(), getChildAt(i + 1).getValue());
+			}
+			break;
+		}
+
+		if (mRangeCount > 0) {
+			drawRanges(canvas, mRanges, mRangeCount, mTrackOnPaint);
+		}
+	}
+
+	/**
+	 * Draws the highlighted ranges of the bar. By default, every range is added to a single
+	 * path with {@link #addConnectingLine(Path, float, float)}, which is drawn at once.
+	 * Subclasses may override this to cache or draw ranges differently.
+	 *
+	 * @param ranges the (from, to) bar values of each range, with from &lt; to
+	 * @param count  the number of ranges; ranges holds twice as many values
+	 * @param paint  the "on" track paint
+	 */
+	protected void drawRanges(Canvas canvas, float[] ranges, int count, Paint paint) {
+		mRangePath.rewind();
+		for (int i = 0; i < count; i++) {
+			addConnectingLine(mRangePath, ranges[2 * i], ranges[2 * i + 1]);
+		}
+		canvas.drawPath(mRangePath, paint);
+	}
+
+	private float rangeValue(int thumb) {
+		if (thumb == RANGE_BAR_START) {
+			return 0f;
+		}
+		if (thumb == RANGE_BAR_END) {
+			return max;
+		}
+		return thumb < getChildCount() ? getChildAt(thumb).getValue() : 0f;
+	}
+
+	private void addRange(float a, float b) {
+		if (a == b) {
+			return;
+		}
+		if (mRanges.length < 2 * (mRangeCount + 1)) {
+			float[] grown = new float[mRanges.length * 2];
+			System.arraycopy(mRanges, 0, grown, 0, 2 * mRangeCount);
+			mRanges = grown;
+		}
+		mRanges[2 * mRangeCount] = Math.min(a, b);
+		mRanges[2 * mRangeCount + 1] = Math.max(a, b);
+		mRangeCount++;
+	}
+
+	/**
+	 * Draws a single connecting line. Prefer letting the bar draw all its ranges at once;
+	 * this is kept for subclasses that draw extra highlights.
+	 */
+	protected void drawConnectingLine(Canvas canvas, float from, float to, Paint paint) {
+		mTmpPath.rewind();
+		addConnectingLine(mTmpPath, from, to);
+		canvas.drawPath(mTmpPath, paint);
+	}
+
+	/**
+	 * Draws the parts of the bar that don't depend on thumb values.
+	 */
+	private void drawTrack(Canvas canvas) {
+		if (metrics == null) {
+			drawBar(canvas, mTrackOffPaint);
+			if (hasTicks) {
+				drawTicks(canvas);
+			}
+			return;
+		}
+
+		long t = System.nanoTime();
+		drawBar(canvas, mTrackOffPaint);
+		metrics.drawBar.record(System.nanoTime() - t);
+		if (hasTicks) {
+			t = System.nanoTime();
+			drawTicks(canvas);
+			metrics.drawTicks.record(System.nanoTime() - t);
+		}
+	}
+
+	/**
+	 * Draws the tick marks on the bar.
+	 *
+	 * @param canvas Canvas to draw on; should be the Canvas passed into {#link
+	 *               View#onDraw()}
+	 */
+	protected void drawTicks(Canvas canvas) {
+		if (ticksDirty) {
+			computeTicks();
+		}
+
+		if (minorTickCount > 0) {
+			mTickPaint.setStrokeWidth(tickRadius * 2f);
+			canvas.drawPoints(minorTicks, 0, minorTickCount * 2, mTickPaint);
+		}
+		if (majorTickCount > 0) {
+			mTickPaint.setStrokeWidth(majorTickRadius * 2f);
+			canvas.drawPoints(majorTicks, 0, majorTickCount * 2, mTickPaint);
+		}
+	}
+
+	/**
+	 * @return the radius of minor tick marks, in pixels
+	 */
+	protected float getTickRadius() {
+		return tickRadius;
+	}
+
+	/**
+	 * @return the radius of major tick marks, in pixels
+	 */
+	protected float getMajorTickRadius() {
+		return majorTickRadius;
+	}
+
+	/**
+	 * @return the smallest distance between two drawn ticks, in pixels
+	 */
+	protected float getTickMinSpacing() {
+		return tickMinSpacing;
+	}
+
+	/**
+	 * Lays out the tick marks. Ticks are decimated so that neighbors are never closer than
+	 * the minimum tick spacing: the step between drawn ticks is the smallest of 1, 2, 5, 10,
+	 * 20, 50... that keeps them apart. Major ticks are decimated the same way, in multiples
+	 * of the major interval; minor ticks are dropped entirely once they can't fit between
+	 * the major ones.
+	 */
+	private void computeTicks() {
+		ticksDirty = false;
+		minorTickCount = 0;
+		majorTickCount = 0;
+		if (max <= 0) {
+			return;
+		}
+
+		float spacing = estimateBarLength() / max;
+
+		int major = Math.max(0, majorTickInterval);
+		int minorStep = tickStep(spacing, 1);
+		int majorStep = major > 0 ? tickStep(spacing, major) : 0;
+		if (major > 0 && minorStep >= major) {
+			minorStep = 0;
+		}
+
+		if (minorStep > 0) {
+			if (minorTicks.length < 2 * (max / minorStep + 1)) {
+				minorTicks = new float[2 * (max / minorStep + 1)];
+			}
+			for (int i = 0; i <= max; i += minorStep) {
+				// Major positions belong to the major level, even when decimated away
+				if (major > 0 && i % major == 0) {
+					continue;
+				}
+				getPointOnBar(mTmpPointF, i);
+				if (isTooCloseToLast(minorTicks, minorTickCount, mTmpPointF)) {
+					continue;
+				}
+				minorTicks[minorTickCount * 2] = mTmpPointF.x;
+				minorTicks[minorTickCount * 2 + 1] = mTmpPointF.y;
+				minorTickCount++;
+			}
+		}
+
+		if (majorStep > 0) {
+			if (majorTicks.length < 2 * (max / majorStep + 1)) {
+				majorTicks = new float[2 * (max / majorStep + 1)];
+			}
+			for (int i = 0; i <= max; i += majorStep) {
+				getPointOnBar(mTmpPointF, i);
+				if (isTooCloseToLast(majorTicks, majorTickCount, mTmpPointF)) {
+					continue;
+				}
+				majorTicks[majorTickCount * 2] = mTmpPointF.x;
+				majorTicks[majorTickCount * 2 + 1] = mTmpPointF.y;
+				majorTickCount++;
+			}
+		}
+	}
+
+	/**
+	 * With a non-linear value scale, evenly stepped ticks bunch up in compressed parts of
+	 * the bar; this drops the ones that land too close to the previously kept tick.
+	 */
+	private boolean isTooCloseToLast(float[] ticks, int count, PointF p) {
+		if (count == 0 || valueScale == null) {
+			return false;
+		}
+		float dx = ticks[count * 2 - 2] - p.x;
+		float dy = ticks[count * 2 - 1] - p.y;
+		return dx * dx + dy * dy < tickMinSpacing * tickMinSpacing;
+	}
+
+	/**
+	 * Returns the smallest multiple of {@code unit} from the 1, 2, 5, 10... sequence that puts
+	 * ticks at least tickMinSpacing apart, given {@code spacing} pixels per value.
+	 */
+	private int tickStep(float spacing, int unit) {
+		if (spacing <= 0f) {
+			return Math.max(unit, max);
+		}
+		int mantissa = 1;
+		int scale = 1;
+		while (spacing * unit * mantissa * scale < tickMinSpacing && unit * mantissa * scale < max) {
+			if (mantissa == 1) {
+				mantissa = 2;
+			}
+			else if (mantissa == 2) {
+				mantissa = 5;
+			}
+			else {
+				mantissa = 1;
+				scale *= 10;
+			}
+		}
+		return unit * mantissa * scale;
+	}
+
+	/**
+	 * Approximates the on-screen length of the bar by sampling it at a few points.
+	 */
+	private float estimateBarLength() {
+		final int samples = 32;
+		float length = 0f;
+		getPointOnBar(mTmpPointF, 0f);
+		float x = mTmpPointF.x;
+		float y = mTmpPointF.y;
+		for (int i = 1; i <= samples; i++) {
+			getPointOnBar(mTmpPointF, (float) max * i / samples);
+			float dx = mTmpPointF.x - x;
+			float dy = mTmpPointF.y - y;
+			length += (float) Math.sqrt(dx * dx + dy * dy);
+			x = mTmpPointF.x;
+			y = mTmpPointF.y;
+		}
+		return length;
+	}
+
+	/////////////////////////////////////////////////////////////////////////
+	// Metrics
+	/////////////////////////////////////////////////////////////////////////
+
+	// Null while metrics are disabled, so that each measuring point costs a single null check
+	private SeekBarMetrics metrics;
+	// Event time of the first touch samples that moved a thumb since the last draw, or 0
+	private long touchEventTime = 0;
+
+	/**
+	 * Starts or stops collecting draw, layout and touch latency timings and counters for this
+	 * bar. Disabled by default. Disabling discards whatever was collected.
+	 *
+	 * @see #getMetrics(SeekBarMetrics)
+	 */
+	public void setMetricsEnabled(boolean enabled) {
+		if (enabled == (metrics != null)) {
+			return;
+		}
+		metrics = enabled ? new SeekBarMetrics() : null;
+		touchEventTime = 0;
+	}
+
+	public boolean isMetricsEnabled() {
+		return metrics != null;
+	}
+
+	/**
+	 * Copies the metrics collected so far into {@code out}, which may be reused between calls.
+	 * If metrics are disabled, {@code out} is reset.
+	 *
+	 * @return {@code out}
+	 */
+	public SeekBarMetrics getMetrics(SeekBarMetrics out) {
+		if (metrics != null) {
+			out.set(metrics);
+		}
+		else {
+			out.reset();
+		}
+		return out;
+	}
+
+	/**
+	 * Clears the metrics collected so far, if any.
+	 */
+	public void resetMetrics() {
+		if (metrics != null) {
+			metrics.reset();
+		}
+		touchEventTime = 0;
+	}
+
+	/////////////////////////////////////////////////////////////////////////
+	// OnSliderChangeListener
+	/////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * A callback that notifies clients when the progress level has been
+	 * changed. This includes changes that were initiated by the user through a
+	 * touch gesture or arrow key/trackball as well as changes that were initiated
+	 * programmatically.
+	 */
+	public interface OnSliderChangeListener {
 		/**
 		 * Notification that the user has started a touch gesture.
 		 *
@@ -419,7 +1647,63 @@ public abstract class AbsMultiSeekBar extends ViewGroup implements ThumbView.OnV
 		void onStopTrackingTouch(AbsMultiSeekBar slider);
 	}
 
+	/**
+	 * A callback that notifies clients when the value of one or more thumbs has changed.
+	 * Changes made inside a batch are reported once, when the batch ends.
+	 */
+	public interface OnValuesChangedListener {
+		/**
+		 * Notification that thumb values have changed.
+		 *
+		 * @param slider The SeekBar whose thumbs changed
+		 */
+		void onValuesChanged(AbsMultiSeekBar slider);
+	}
+
+	/**
+	 * A callback that notifies clients once thumb values have come to rest: no thumb is being
+	 * dragged or animated and no batch is open. Sent once per burst of changes.
+	 */
+	public interface OnValuesSettledListener {
+		/**
+		 * Notification that thumb values have stopped changing.
+		 *
+		 * @param slider The SeekBar whose thumbs settled
+		 */
+		void onValuesSettled(AbsMultiSeekBar slider);
+	}
+
+	/**
+	 * A callback that receives every touch sample of a drag, resolved to bar values, once per
+	 * frame. Useful for clients that want the full input resolution (e.g. to draw a stroke)
+	 * while the thumb itself only moves once per frame.
+	 */
+	public interface OnTouchSamplesListener {
+		/**
+		 * Notification of the touch samples collected since the last frame, oldest first.
+		 * The arrays are reused and are only valid for the duration of the call.
+		 * <p>
+		 * After the call, the dragged thumb moves to {@code values[count - 1]}. The listener
+		 * may write another value there, e.g. to snap or constrain the thumb; the rest of
+		 * {@code values} and {@code times} are read only.
+		 *
+		 * @param slider The SeekBar being dragged
+		 * @param thumb  The index of the thumb being dragged, or {@code -1 - index} for a
+		 *               virtual thumb
+		 * @param values The bar value of each sample, in double precision like
+		 *               {@link ThumbView#getExactValue()}
+		 * @param times  The event time of each sample, in the uptimeMillis() time base
+		 * @param count  The number of valid samples in values and times
+		 */
+		void onTouchSamples(AbsMultiSeekBar slider, int thumb, double[] values, long[] times, int count);
+	}
+
 	private OnSliderChangeListener mOnSeekBarChangeListener;
+	private final ListenerArray<OnValuesChangedListener> valuesChangedListeners =
+		new ListenerArray<>(OnValuesChangedListener.class);
+	private final ListenerArray<OnValuesSettledListener> valuesSettledListeners =
+		new ListenerArray<>(OnValuesSettledListener.class);
+	private OnTouchSamplesListener mOnTouchSamplesListener;
 
 	/**
 	 * Sets a listener to receive notifications of changes to the SeekBar's progress level. Also
@@ -431,6 +1715,122 @@ public abstract class AbsMultiSeekBar extends ViewGroup implements ThumbView.OnV
 		mOnSeekBarChangeListener = l;
 	}
 
+	/**
+	 * Adds a listener to receive a notification whenever thumb values change.
+	 *
+	 * @param l The values notification listener
+	 * @see #setValuesDispatchMode(int)
+	 */
+	public void addOnValuesChangedListener(OnValuesChangedListener l) {
+		valuesChangedListeners.add(l);
+	}
+
+	public void removeOnValuesChangedListener(OnValuesChangedListener l) {
+		valuesChangedListeners.remove(l);
+	}
+
+	/**
+	 * Adds a listener to receive a notification whenever thumb values come to rest.
+	 *
+	 * @param l The settled values listener
+	 */
+	public void addOnValuesSettledListener(OnValuesSettledListener l) {
+		valuesSettledListeners.add(l);
+	}
+
+	public void removeOnValuesSettledListener(OnValuesSettledListener l) {
+		valuesSettledListeners.remove(l);
+	}
+
+	/**
+	 * Chooses when {@link OnValuesChangedListener}s are notified: either
+	 * {@link #DISPATCH_IMMEDIATE} (the default) or {@link #DISPATCH_PER_FRAME}.
+	 */
+	public void setValuesDispatchMode(@DispatchMode int mode) {
+		if (mode == DISPATCH_IMMEDIATE && valuesFramePending) {
+			cancelValuesFrame();
+			dispatchValuesChanged();
+		}
+		valuesDispatchMode = mode;
+	}
+
+	@DispatchMode
+	public int getValuesDispatchMode() {
+		return valuesDispatchMode;
+	}
+
+	/**
+	 * Sets a listener to receive every intermediate touch sample of a drag.
+	 *
+	 * @param l The touch samples listener
+	 */
+	public void setOnTouchSamplesListener(OnTouchSamplesListener l) {
+		mOnTouchSamplesListener = l;
+	}
+
+	@DispatchMode
+	private int valuesDispatchMode = DISPATCH_IMMEDIATE;
+	private boolean valuesFramePending = false;
+	private boolean valuesUnsettled = false;
+
+	private final Choreographer.FrameCallback valuesFrameCallback = new Choreographer.FrameCallback() {
+		@Override
+		public void doFrame(long frameTimeNanos) {
+			valuesFramePending = false;
+			dispatchValuesChanged();
+		}
+	};
+
+	void onValuesChanged() {
+		valuesUnsettled = true;
+		if (valuesDispatchMode == DISPATCH_PER_FRAME) {
+			if (!valuesFramePending && !valuesChangedListeners.isEmpty()) {
+				valuesFramePending = true;
+				Choreographer.getInstance().postFrameCallback(valuesFrameCallback);
+			}
+		}
+		else {
+			dispatchValuesChanged();
+		}
+		maybeSettle();
+	}
+
+	/**
+	 * Sends the settled notification if values changed and nothing is still moving them.
+	 */
+	private void maybeSettle() {
+		if (!valuesUnsettled || isDragging() || batchDepth > 0
+			|| (animator != null && animator.isRunning())) {
+			return;
+		}
+		valuesUnsettled = false;
+
+		// Listeners must never see a settle before the last change
+		if (valuesFramePending) {
+			cancelValuesFrame();
+			dispatchValuesChanged();
+		}
+
+		OnValuesSettledListener[] listeners = valuesSettledListeners.get();
+		for (int i = 0; i < listeners.length; i++) {
+			listeners[i].onValuesSettled(this);
+		}
+	}
+
+	private void dispatchValuesChanged() {
+		OnValuesChangedListener[] listeners = valuesChangedListeners.get();
+		for (int i = 0; i < listeners.length; i++) {
+			listeners[i].onValuesChanged(this);
+		}
+	}
+
+	private void cancelValuesFrame() {
+		if (valuesFramePending) {
+			valuesFramePending = false;
+			Choreographer.getInstance().removeFrameCallback(valuesFrameCallback);
+		}
+	}
+
 	void onStartTrackingTouch() {
 		if (mOnSeekBarChangeListener != null) {
 			mOnSeekBarChangeListener.onStartTrackingTouch(this);
@@ -448,13 +1848,15 @@ public abstract class AbsMultiSeekBar extends ViewGroup implements ThumbView.OnV
 	/////////////////////////////////////////////////////////////////////////
 
 	/**
-	 * Draw the connecting line between the two thumbs in RangeBar.
+	 * Adds the connecting line between two bar values to a path, without resetting it.
+	 * All the ranges of the bar are added to the same path, which is then drawn with the
+	 * "on" track paint.
 	 *
-	 * @param canvas the Canvas to draw on
-	 * @param from   the lower bar value of the connecting line
-	 * @param to     the upper bar value of the connecting line
+	 * @param path the Path to add the connecting line to
+	 * @param from the lower bar value of the connecting line
+	 * @param to   the upper bar value of the connecting line
 	 */
-	protected abstract void drawConnectingLine(Canvas canvas, float from, float to, Paint paint);
+	protected abstract void addConnectingLine(Path path, float from, float to);
 
 	/**
 	 * Gets the value of the bar nearest to the passed point.
@@ -2,10 +2,12 @@ package com.dgmltn.multiseekbar.internal;
 
 import android.animation.ObjectAnimator;
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Rect;
+import android.graphics.RectF;
 import android.graphics.drawable.AnimatedStateListDrawable;
 import android.graphics.drawable.AnimatedVectorDrawable;
 import android.graphics.drawable.Drawable;
@@ -36,6 +38,10 @@ public class AnimatedPinDrawable extends AnimatedStateListDrawable {
 	private OvershootInterpolator overshoot = new OvershootInterpolator();
 	private float mExpansionPercent = 0f;
 
+	private Bitmap preview = null;
+	private final Paint previewPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+	private final RectF previewBounds = new RectF();
+
 	public AnimatedPinDrawable(Context context) {
 		super();
 		Drawable collapsed = context.getDrawable(R.drawable.pin_collapsed);
@@ -63,7 +69,7 @@ public class AnimatedPinDrawable extends AnimatedStateListDrawable {
 
 		if (changed && isPressed != contains(stateSet, android.R.attr.state_pressed)) {
 			isPressed = !isPressed;
-			if (text != null) {
+			if (text != null || preview != null) {
 				expandText(isPressed ? 0f : 1f);
 			}
 		}
@@ -86,16 +92,31 @@ public class AnimatedPinDrawable extends AnimatedStateListDrawable {
 		paint.setColor(color);
 	}
 
+	/**
+	 * Shows {@code preview} in the expanded pin, in place of the text, or the text again
+	 * when null.
+	 */
+	public void setPreview(Bitmap preview) {
+		if (this.preview != preview) {
+			this.preview = preview;
+			invalidateSelf();
+		}
+	}
+
 	// These numbers were determined experimentally based on the actual pin drawable
 	private static final float TEXT_EXPANSION_Y_PCT_START = 0.5f;
 	private static final float TEXT_EXPANSION_Y_PCT_STOP = 0.25f;
 	private static final float TEXT_SCALE_PCT = 0.35f;
+	private static final float PREVIEW_SIZE_PCT = 0.6f;
 
 	@Override
 	public void draw(Canvas canvas) {
 		super.draw(canvas);
 
-		if (text != null && mExpansionPercent > 0) {
+		if (preview != null && mExpansionPercent > 0) {
+			drawPreview(canvas);
+		}
+		else if (text != null && mExpansionPercent > 0) {
 			// Recalculate text scaling if necessary
 			if (textScale == 0f) {
 				paint.getTextBounds(text, 0, text.length(), textBounds);
@@ -124,6 +145,27 @@ public class AnimatedPinDrawable extends AnimatedStateListDrawable {
 		}
 	}
 
+	/**
+	 * Draws the preview where the text would be, fit in a square a fraction of the pin's
+	 * width, and growing with the pin.
+	 */
+	private void drawPreview(Canvas canvas) {
+		float a = TEXT_EXPANSION_Y_PCT_START;
+		float b = TEXT_EXPANSION_Y_PCT_START - TEXT_EXPANSION_Y_PCT_STOP;
+		float cx = canvas.getWidth() / 2f;
+		float cy = canvas.getHeight() * (a - b * mExpansionPercent);
+
+		float size = canvas.getWidth() * PREVIEW_SIZE_PCT * mExpansionPercent;
+		float w = preview.getWidth();
+		float h = preview.getHeight();
+		if (w <= 0 || h <= 0) {
+			return;
+		}
+		float scale = size / Math.max(w, h);
+		previewBounds.set(cx - w * scale / 2, cy - h * scale / 2, cx + w * scale / 2, cy + h * scale / 2);
+		canvas.drawBitmap(preview, null, previewBounds, previewPaint);
+	}
+
 	private void expandText(float from) {
 		ObjectAnimator anim = ObjectAnimator.ofFloat(this, "expansion", from, 1f - from);
 		anim.setInterpolator(overshoot);
@@ -0,0 +1,221 @@
+package com.dgmltn.multiseekbar.internal;
+
+import android.graphics.PathMeasure;
+import android.graphics.PointF;
+
+/**
+ * A path sampled at evenly spaced arc lengths into one packed array of
+ * (x, y, angle) triples. Looking up a position or a tangent angle is then an index
+ * computation and a linear interpolation, instead of a {@link PathMeasure#getPosTan} call
+ * through JNI and an atan.
+ * <p>
+ * A path made of several contours is sampled contour by contour, each ending on a sample of
+ * its own, so lookups never interpolate across the gap between two contours. Distances run
+ * through all contours, one after the other; the contour holding a distance is found with a
+ * binary search over the cumulative contour lengths.
+ * <p>
+ * Angles are in degrees, between -90 and 90, like {@code atan(dy / dx)}: a thumb rotated by
+ * them follows the path without ever turning upside down.
+ */
+public class ArcLengthTable {
+
+	public static final int STRIDE = 3;
+
+	private float[] samples = new float[0];
+	private int sampleCount = 0;
+	private float length = 0f;
+
+	private int contourCount = 0;
+	// Cumulative length before each contour, and the index of its first sample; both have a
+	// final entry for the end of the last contour
+	private float[] contourStarts = new float[1];
+	private int[] sampleStarts = new int[1];
+
+	private final float[] mTmpPos = new float[2];
+	private final float[] mTmpTan = new float[2];
+
+	/**
+	 * Samples {@code count} contours with about {@code segments} straight segments in all,
+	 * shared out by length, reusing the backing arrays when they are large enough.
+	 *
+	 * @param contours      one PathMeasure per contour
+	 * @param contourStarts the cumulative length before each contour, plus the total length
+	 */
+	public void build(PathMeasure[] contours, float[] contourStarts, int count, int segments) {
+		contourCount = count;
+		length = count > 0 ? contourStarts[count] : 0f;
+		if (this.contourStarts.length < count + 1) {
+			this.contourStarts = new float[count + 1];
+			this.sampleStarts = new int[count + 1];
+		}
+		System.arraycopy(contourStarts, 0, this.contourStarts, 0, count + 1);
+
+		// Every contour gets at least one segment, and one more sample than segments
+		int total = 0;
+		for (int c = 0; c < count; c++) {
+			sampleStarts[c] = total;
+			total += contourSegments(c, segments) + 1;
+		}
+		sampleStarts[count] = total;
+		sampleCount = total;
+		if (samples.length < total * STRIDE) {
+			samples = new float[total * STRIDE];
+		}
+
+		for (int c = 0; c < count; c++) {
+			int n = sampleStarts[c + 1] - sampleStarts[c] - 1;
+			float contourLength = this.contourStarts[c + 1] - this.contourStarts[c];
+			float angle = 0f;
+			for (int i = 0; i <= n; i++) {
+				contours[c].getPosTan(contourLength * i / n, mTmpPos, mTmpTan);
+				float a = (float) Math.toDegrees(Math.atan(mTmpTan[1] / mTmpTan[0]));
+				if (!Float.isNaN(a)) {
+					angle = a;
+				}
+				int j = (sampleStarts[c] + i) * STRIDE;
+				samples[j] = mTmpPos[0];
+				samples[j + 1] = mTmpPos[1];
+				samples[j + 2] = angle;
+			}
+		}
+	}
+
+	private int contourSegments(int c, int segments) {
+		if (length <= 0f) {
+			return 1;
+		}
+		float share = (contourStarts[c + 1] - contourStarts[c]) / length;
+		return Math.max(1, Math.round(segments * share));
+	}
+
+	public float getLength() {
+		return length;
+	}
+
+	public int getContourCount() {
+		return contourCount;
+	}
+
+	/**
+	 * @return the number of samples, across all contours
+	 */
+	public int getSampleCount() {
+		return sampleCount;
+	}
+
+	/**
+	 * @return the index of the first sample of each contour, plus the total sample count
+	 */
+	public int[] getContourSampleStarts() {
+		return sampleStarts;
+	}
+
+	/**
+	 * The packed (x, y, angle) samples. The array may be longer than
+	 * {@code getSampleCount() * STRIDE} and must not be modified.
+	 */
+	public float[] getSamples() {
+		return samples;
+	}
+
+	public boolean isEmpty() {
+		return length <= 0f;
+	}
+
+	/**
+	 * @param fraction a fraction of the path's length; clamped to [0, 1]
+	 */
+	public void getPosition(float fraction, PointF out) {
+		int i = locate(fraction);
+		float f = locatedFraction;
+		int j = i * STRIDE;
+		out.set(
+			samples[j] + f * (samples[j + STRIDE] - samples[j]),
+			samples[j + 1] + f * (samples[j + STRIDE + 1] - samples[j + 1]));
+	}
+
+	/**
+	 * @param fraction a fraction of the path's length; clamped to [0, 1]
+	 * @return the tangent angle at {@code fraction}, in degrees
+	 */
+	public float getAngle(float fraction) {
+		int i = locate(fraction);
+		float f = locatedFraction;
+		float a0 = samples[i * STRIDE + 2];
+		float a1 = samples[(i + 1) * STRIDE + 2];
+		if (Math.abs(a1 - a0) > 90f) {
+			// The tangent went through vertical: interpolating would swing the wrong way
+			return f < 0.5f ? a0 : a1;
+		}
+		return a0 + f * (a1 - a0);
+	}
+
+	/**
+	 * Converts a position on the polyline through the samples (a sample index plus the
+	 * position towards the next sample) to a fraction of the path's length.
+	 */
+	public float sampleToFraction(float position) {
+		if (length <= 0f) {
+			return 0f;
+		}
+		int k = Math.max(0, Math.min(sampleCount - 1, (int) position));
+		float u = Math.max(0f, Math.min(1f, position - k));
+		int c = findContourOfSample(k);
+		int n = sampleStarts[c + 1] - sampleStarts[c] - 1;
+		int j = k - sampleStarts[c];
+		if (j >= n) {
+			// The last sample of a contour: there's no segment after it on this contour
+			j = n;
+			u = 0f;
+		}
+		float contourLength = contourStarts[c + 1] - contourStarts[c];
+		float distance = contourStarts[c] + (j + u) / n * contourLength;
+		return Math.max(0f, Math.min(1f, distance / length));
+	}
+
+	// The position within the segment found by the last locate()
+	private float locatedFraction;
+
+	/**
+	 * @return the index of the sample starting the segment at {@code fraction}, leaving the
+	 * position within that segment in locatedFraction
+	 */
+	private int locate(float fraction) {
+		float distance = Math.max(0f, Math.min(1f, fraction)) * length;
+
+		// Last contour starting at or before distance
+		int lo = 0;
+		int hi = contourCount - 1;
+		while (lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if (contourStarts[mid] <= distance) {
+				lo = mid;
+			}
+			else {
+				hi = mid - 1;
+			}
+		}
+
+		int n = sampleStarts[lo + 1] - sampleStarts[lo] - 1;
+		float contourLength = contourStarts[lo + 1] - contourStarts[lo];
+		float f = contourLength > 0f ? (distance - contourStarts[lo]) / contourLength * n : 0f;
+		int i = Math.max(0, Math.min((int) f, n - 1));
+		locatedFraction = Math.max(0f, Math.min(1f, f - i));
+		return sampleStarts[lo] + i;
+	}
+
+	private int findContourOfSample(int k) {
+		int lo = 0;
+		int hi = contourCount - 1;
+		while (lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if (sampleStarts[mid] <= k) {
+				lo = mid;
+			}
+			else {
+				hi = mid - 1;
+			}
+		}
+		return lo;
+	}
+}
@@ -35,6 +35,7 @@ import static java.lang.Math.abs;
 import static java.lang.Math.ceil;
 import static java.lang.Math.cos;
 import static java.lang.Math.floor;
+import static java.lang.Math.pow;
 import static java.lang.Math.sin;
 import static java.lang.Math.sqrt;
 import static java.lang.Math.toRadians;
@@ -51,6 +52,13 @@ public final class ArcUtils
 {
 	private static final double FULL_CIRCLE_RADIANS = toRadians(360d);
 
+	/**
+	 * Bounds for {@link #pointsOnCircleForTolerance(float, float)}: never split less than
+	 * every 90°, nor more than every 5.625°.
+	 */
+	public static final int MIN_POINTS_ON_CIRCLE = 4;
+	public static final int MAX_POINTS_ON_CIRCLE = 64;
+
 	private ArcUtils() { }
 
 	/**
@@ -88,20 +96,64 @@ public final class ArcUtils
 	public static void drawArc(@NonNull Canvas canvas, PointF circleCenter, float circleRadius,
 		float startAngle, float sweepAngle, @NonNull Paint paint,
 		int arcsPointsOnCircle, boolean arcsOverlayPoints)
+	{
+		drawArc(canvas, circleCenter, circleRadius, startAngle, sweepAngle, paint,
+			arcsPointsOnCircle, arcsOverlayPoints, null);
+	}
+
+	/**
+	 * Draws a circular arc on the given {@code Canvas}, building it in {@code scratch} so that
+	 * drawing does not allocate.
+	 *
+	 * @param scratch A path to reuse: it is rewound and its previous content lost, or
+	 *                {@code null} to create a new path.
+	 *
+	 * @see #drawArc(Canvas, PointF, float, float, float, Paint, int, boolean)
+	 */
+	public static void drawArc(@NonNull Canvas canvas, PointF circleCenter, float circleRadius,
+		float startAngle, float sweepAngle, @NonNull Paint paint,
+		int arcsPointsOnCircle, boolean arcsOverlayPoints, @Nullable Path scratch)
 	{
 		if (sweepAngle == 0f)
 		{
-			final PointF p = pointFromAngleDegrees(circleCenter, circleRadius, startAngle);
-			canvas.drawPoint(p.x, p.y, paint);
+			final double angle = toRadians(startAngle);
+			canvas.drawPoint((float)(circleCenter.x + circleRadius * cos(angle)),
+				(float)(circleCenter.y + circleRadius * sin(angle)), paint);
 		}
 		else
 		{
+			if (scratch != null) { scratch.rewind(); }
 			canvas.drawPath(createBezierArcDegrees(
 				circleCenter, circleRadius, startAngle, sweepAngle,
-				arcsPointsOnCircle, arcsOverlayPoints, null), paint);
+				arcsPointsOnCircle, arcsOverlayPoints, scratch), paint);
 		}
 	}
 
+	/**
+	 * Returns how many points on the circle (see
+	 * {@link #createBezierArcRadians(PointF, float, double, double, int, boolean, Path)}) keep a
+	 * Bézier approximation of an arc of the given radius within {@code tolerance} of the true
+	 * circle.
+	 * <p>
+	 * The radial error of a single cubic spanning an angle θ is about
+	 * {@code 2r sin⁶(θ/4) / (27 cos²(θ/4))}, so about {@code 2r (θ/4)⁶ / 27} for the angles
+	 * used here, which gives the widest θ within tolerance. The result is clamped between
+	 * {@link #MIN_POINTS_ON_CIRCLE} and {@link #MAX_POINTS_ON_CIRCLE}.
+	 *
+	 * @param radius    The radius of the circle, in pixels.
+	 * @param tolerance The largest acceptable distance to the circle, in pixels.
+	 *
+	 * @return The number of points on the circle.
+	 */
+	public static int pointsOnCircleForTolerance(float radius, float tolerance)
+	{
+		if (radius <= 0f) { return MIN_POINTS_ON_CIRCLE; }
+		if (tolerance <= 0f) { return MAX_POINTS_ON_CIRCLE; }
+		final double theta = 4d * pow(27d * tolerance / (2d * radius), 1d / 6d);
+		final int points = (int)ceil(FULL_CIRCLE_RADIANS / theta);
+		return Math.max(MIN_POINTS_ON_CIRCLE, Math.min(MAX_POINTS_ON_CIRCLE, points));
+	}
+
 	/**
 	 * Normalize the input radians in the range 360° > x >= 0°.
 	 *
@@ -153,6 +205,45 @@ public final class ArcUtils
 		return pointFromAngleRadians(center, radius, toRadians(angleDegrees));
 	}
 
+	/**
+	 * Like {@link #pointFromAngleRadians(PointF, float, double)}, writing the point into
+	 * {@code out} instead of allocating one.
+	 *
+	 * @return {@code out}
+	 */
+	@NonNull
+	public static PointF pointFromAngleRadians(@NonNull PointF center, float radius, double angleRadians,
+		@NonNull PointF out)
+	{
+		out.x = (float)(center.x + radius * cos(angleRadians));
+		out.y = (float)(center.y + radius * sin(angleRadians));
+		return out;
+	}
+
+	/**
+	 * Like {@link #pointFromAngleDegrees(PointF, float, float)}, writing the point into
+	 * {@code out} instead of allocating one.
+	 *
+	 * @return {@code out}
+	 */
+	@NonNull
+	public static PointF pointFromAngleDegrees(@NonNull PointF center, float radius, float angleDegrees,
+		@NonNull PointF out)
+	{
+		return pointFromAngleRadians(center, radius, toRadians(angleDegrees), out);
+	}
+
+	/**
+	 * Like {@link #pointFromAngleRadians(PointF, float, double)}, writing the point's x and y
+	 * into {@code out} at {@code offset} and {@code offset + 1}.
+	 */
+	public static void pointFromAngleRadians(float centerX, float centerY, float radius, double angleRadians,
+		@NonNull float[] out, int offset)
+	{
+		out[offset] = (float)(centerX + radius * cos(angleRadians));
+		out[offset + 1] = (float)(centerY + radius * sin(angleRadians));
+	}
+
 	/**
 	 * Adds a circular arc to the given path by approximating it through a cubic Bézier curve.
 	 * <p/>
@@ -185,21 +276,31 @@ public final class ArcUtils
 		@NonNull PointF start, @NonNull PointF end, boolean moveToStart)
 	{
 		if (moveToStart) { path.moveTo(start.x, start.y); }
-		if (start.equals(end)) { return; }
+		addBezierArcToPath(path, center.x, center.y, start.x, start.y, end.x, end.y);
+	}
+
+	/**
+	 * Like {@link #addBezierArcToPath(Path, PointF, PointF, PointF, boolean)} without moving to
+	 * the start, from plain coordinates.
+	 */
+	private static void addBezierArcToPath(@NonNull Path path, float centerX, float centerY,
+		float startX, float startY, float endX, float endY)
+	{
+		if (startX == endX && startY == endY) { return; }
 
-		final double ax = start.x - center.x;
-		final double ay = start.y - center.y;
-		final double bx = end.x - center.x;
-		final double by = end.y - center.y;
+		final double ax = startX - centerX;
+		final double ay = startY - centerY;
+		final double bx = endX - centerX;
+		final double by = endY - centerY;
 		final double q1 = ax * ax + ay * ay;
 		final double q2 = q1 + ax * bx + ay * by;
 		final double k2 = 4d / 3d * (sqrt(2d * q1 * q2) - q2) / (ax * by - ay * bx);
-		final float x2 = (float)(center.x + ax - k2 * ay);
-		final float y2 = (float)(center.y + ay + k2 * ax);
-		final float x3 = (float)(center.x + bx + k2 * by);
-		final float y3 = (float)(center.y + by - k2 * bx);
+		final float x2 = (float)(centerX + ax - k2 * ay);
+		final float y2 = (float)(centerY + ay + k2 * ax);
+		final float x3 = (float)(centerX + bx + k2 * by);
+		final float y3 = (float)(centerY + by - k2 * bx);
 
-		path.cubicTo(x2, y2, x3, y3, end.x, end.y);
+		path.cubicTo(x2, y2, x3, y3, endX, endY);
 	}
 
 	/**
@@ -264,14 +365,17 @@ public final class ArcUtils
 		final Path path = addToPath != null ? addToPath : new Path();
 		if (sweepAngleRadians == 0d) { return path; }
 
+		final float cx = center.x;
+		final float cy = center.y;
 		if (pointsOnCircle >= 1)
 		{
 			final double threshold = FULL_CIRCLE_RADIANS / pointsOnCircle;
 			if (abs(sweepAngleRadians) > threshold)
 			{
 				double angle = normalizeRadians(startAngleRadians);
-				PointF end, start = pointFromAngleRadians(center, radius, angle);
-				path.moveTo(start.x, start.y);
+				float startX = (float)(cx + radius * cos(angle));
+				float startY = (float)(cy + radius * sin(angle));
+				path.moveTo(startX, startY);
 				if (overlapPoints)
 				{
 					final boolean cw = sweepAngleRadians > 0; // clockwise?
@@ -281,33 +385,40 @@ public final class ArcUtils
 						double next = (cw ? ceil(angle / threshold) : floor(angle / threshold)) * threshold;
 						if (angle == next) { next += threshold * (cw ? 1d : -1d); }
 						final boolean isEnd = cw ? angleEnd <= next : angleEnd >= next;
-						end = pointFromAngleRadians(center, radius, isEnd ? angleEnd : next);
-						addBezierArcToPath(path, center, start, end, false);
+						final double to = isEnd ? angleEnd : next;
+						final float endX = (float)(cx + radius * cos(to));
+						final float endY = (float)(cy + radius * sin(to));
+						addBezierArcToPath(path, cx, cy, startX, startY, endX, endY);
 						if (isEnd) { break; }
 						angle = next;
-						start = end;
+						startX = endX;
+						startY = endY;
 					}
 				}
 				else
 				{
 					final int n = abs((int)ceil(sweepAngleRadians / threshold));
 					final double sweep = sweepAngleRadians / n;
-					for (int i = 0;
-						i < n;
-						i++, start = end)
+					for (int i = 0; i < n; i++)
 					{
 						angle += sweep;
-						end = pointFromAngleRadians(center, radius, angle);
-						addBezierArcToPath(path, center, start, end, false);
+						final float endX = (float)(cx + radius * cos(angle));
+						final float endY = (float)(cy + radius * sin(angle));
+						addBezierArcToPath(path, cx, cy, startX, startY, endX, endY);
+						startX = endX;
+						startY = endY;
 					}
 				}
 				return path;
 			}
 		}
 
-		final PointF start = pointFromAngleRadians(center, radius, startAngleRadians);
-		final PointF end = pointFromAngleRadians(center, radius, startAngleRadians + sweepAngleRadians);
-		addBezierArcToPath(path, center, start, end, true);
+		final double endAngle = startAngleRadians + sweepAngleRadians;
+		final float startX = (float)(cx + radius * cos(startAngleRadians));
+		final float startY = (float)(cy + radius * sin(startAngleRadians));
+		path.moveTo(startX, startY);
+		addBezierArcToPath(path, cx, cy, startX, startY,
+			(float)(cx + radius * cos(endAngle)), (float)(cy + radius * sin(endAngle)));
 		return path;
 	}
 
@@ -373,4 +484,25 @@ public final class ArcUtils
 		return createBezierArcRadians(center, radius, toRadians(startAngleDegrees), toRadians(sweepAngleDegrees),
 			pointsOnCircle, overlapPoints, addToPath);
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Adds a circular arc to the given path, split as finely as needed to stay within
+	 * {@code tolerance} of the true circle (see {@link #pointsOnCircleForTolerance(float, float)}).
+	 *
+	 * @param center            The center of the circle.
+	 * @param radius            The radius of the circle, in pixels.
+	 * @param startAngleDegrees The starting angle on the circle (in degrees).
+	 * @param sweepAngleDegrees How long to make the total arc (in degrees).
+	 * @param tolerance         The largest acceptable distance to the circle, in pixels.
+	 * @param addToPath         An existing path where to add the arc to, or {@code null} to create a new path.
+	 *
+	 * @return {@code addToPath} if it's not {@code null}, otherwise a new path.
+	 */
+	@NonNull
+	public static Path createBezierArcDegrees(@NonNull PointF center, float radius, float startAngleDegrees,
+		float sweepAngleDegrees, float tolerance, @Nullable Path addToPath)
+	{
+		return createBezierArcRadians(center, radius, toRadians(startAngleDegrees), toRadians(sweepAngleDegrees),
+			pointsOnCircleForTolerance(radius, tolerance), false, addToPath);
+	}
+}
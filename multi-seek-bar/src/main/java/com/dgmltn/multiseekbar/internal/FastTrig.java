@@ -0,0 +1,123 @@
+package com.dgmltn.multiseekbar.internal;
+
+import android.graphics.PointF;
+
+/**
+ * Float trigonometry for mapping between angles and positions on a circular bar, trading a
+ * small, bounded error for speed: an {@code atan2} approximation that needs no
+ * double-precision library call, and a table of cosines and sines over a fixed sweep.
+ */
+public final class FastTrig {
+
+	/**
+	 * Largest difference between {@link #atan2Degrees} and
+	 * {@code Math.toDegrees(Math.atan2(y, x))}, in degrees (about 1.2e-5 radians).
+	 */
+	public static final float ATAN2_MAX_ERROR_DEGREES = 7e-4f;
+
+	/**
+	 * Table entries per full circle in a {@link SinCosTable}.
+	 */
+	public static final int STEPS_PER_CIRCLE = 1024;
+
+	/**
+	 * Largest distance between a point from {@link SinCosTable#getPoint} and the true point
+	 * on the circle, as a fraction of the radius: {@code h² / 8} for a step of
+	 * {@code h = 2π / STEPS_PER_CIRCLE} radians, plus float rounding.
+	 */
+	public static final float SIN_COS_MAX_ERROR = 5e-6f;
+
+	private static final float PI = (float) Math.PI;
+	private static final float HALF_PI = (float) (Math.PI / 2);
+	private static final float RADIANS_TO_DEGREES = (float) (180 / Math.PI);
+
+	private FastTrig() {
+	}
+
+	/**
+	 * Like {@link Math#atan2}, in radians, within {@link #ATAN2_MAX_ERROR_DEGREES}. Returns 0
+	 * for (0, 0).
+	 */
+	public static float atan2(float y, float x) {
+		float ax = Math.abs(x);
+		float ay = Math.abs(y);
+		if (ax == 0f && ay == 0f) {
+			return 0f;
+		}
+		float a = ay <= ax ? atan(ay / ax) : HALF_PI - atan(ax / ay);
+		if (x < 0f) {
+			a = PI - a;
+		}
+		// copySign, so that -0 gives -180 like Math.atan2
+		return Math.copySign(a, y);
+	}
+
+	/**
+	 * Like {@link #atan2}, in degrees, between -180 and 180.
+	 */
+	public static float atan2Degrees(float y, float x) {
+		return atan2(y, x) * RADIANS_TO_DEGREES;
+	}
+
+	/**
+	 * atan(z) for 0 <= z <= 1, by the odd polynomial of Abramowitz and Stegun 4.4.49
+	 * (error below 1e-5 radians).
+	 */
+	private static float atan(float z) {
+		float z2 = z * z;
+		return z * (0.9998660f + z2 * (-0.3302995f + z2 * (0.1801410f + z2 * (-0.0851330f + z2 * 0.0208351f))));
+	}
+
+	/**
+	 * Cosines and sines of evenly spaced angles over a sweep, for placing points on an arc
+	 * without calling {@link Math#cos} and {@link Math#sin}. Points between entries are
+	 * interpolated linearly, so they lie on the chord between two entries, within
+	 * {@link #SIN_COS_MAX_ERROR} of the circle.
+	 */
+	public static final class SinCosTable {
+
+		private float start = Float.NaN;
+		private float sweep = Float.NaN;
+		private int steps;
+		private float[] cos = new float[0];
+		private float[] sin = new float[0];
+
+		/**
+		 * Fills the table for the given sweep, unless it already holds it.
+		 *
+		 * @param startDegrees the angle at fraction 0
+		 * @param sweepDegrees the angle from fraction 0 to fraction 1, clockwise
+		 */
+		public void set(float startDegrees, float sweepDegrees) {
+			if (startDegrees == start && sweepDegrees == sweep) {
+				return;
+			}
+			start = startDegrees;
+			sweep = sweepDegrees;
+			steps = Math.max(1, (int) Math.ceil(Math.abs(sweepDegrees) / 360f * STEPS_PER_CIRCLE));
+			if (cos.length < steps + 1) {
+				cos = new float[steps + 1];
+				sin = new float[steps + 1];
+			}
+			for (int i = 0; i <= steps; i++) {
+				double angle = Math.toRadians(startDegrees + (double) sweepDegrees * i / steps);
+				cos[i] = (float) Math.cos(angle);
+				sin[i] = (float) Math.sin(angle);
+			}
+		}
+
+		/**
+		 * Writes the point at {@code fraction} of the sweep, on the circle of the given center
+		 * and radius, into {@code out}.
+		 *
+		 * @param fraction clamped to [0, 1]
+		 */
+		public void getPoint(float fraction, float centerX, float centerY, float radius, PointF out) {
+			float f = Math.max(0f, Math.min(1f, fraction)) * steps;
+			int i = Math.min((int) f, steps - 1);
+			float t = f - i;
+			out.x = centerX + radius * (cos[i] + t * (cos[i + 1] - cos[i]));
+			out.y = centerY + radius * (sin[i] + t * (sin[i + 1] - sin[i]));
+		}
+	}
+}
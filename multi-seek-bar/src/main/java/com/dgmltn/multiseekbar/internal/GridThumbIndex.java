@@ -0,0 +1,149 @@
+package com.dgmltn.multiseekbar.internal;
+
+/**
+ * A {@link ThumbHitIndex} that buckets thumbs into a uniform spatial grid. Suitable for
+ * bars where value order says nothing about screen proximity, like arbitrary paths.
+ * <p>
+ * Cells are at least as large as the touch radius, so a query only has to look at the 3x3
+ * block of cells around the touch point. Cells are hashed into a power-of-two table of
+ * doubly linked lists, so thumbs may move anywhere without the grid having to be resized.
+ */
+public class GridThumbIndex extends ThumbHitIndex {
+
+	private static final int EMPTY = -1;
+
+	private final float mCellSize;
+
+	private int[] mHeads = new int[0];
+	private int mMask = 0;
+
+	private int[] mNext = new int[0];
+	private int[] mPrev = new int[0];
+	private int[] mBucket = new int[0];
+
+	/**
+	 * @param cellSize size of a grid cell, in pixels. Must be at least the largest
+	 *                 radius that will be passed to {@link #findNearest}.
+	 */
+	public GridThumbIndex(float cellSize) {
+		mCellSize = Math.max(1f, cellSize);
+	}
+
+	@Override
+	protected void onCapacityChanged(int capacity) {
+		mNext = new int[capacity];
+		mPrev = new int[capacity];
+		mBucket = new int[capacity];
+
+		int buckets = Integer.highestOneBit(Math.max(1, capacity - 1)) << 2;
+		mHeads = new int[buckets];
+		mMask = buckets - 1;
+	}
+
+	@Override
+	protected void onRebuild() {
+		for (int i = 0; i < mHeads.length; i++) {
+			mHeads[i] = EMPTY;
+		}
+		for (int id = 0; id < mCount; id++) {
+			link(id, bucketOf(mX[id], mY[id]));
+		}
+	}
+
+	@Override
+	protected void onUpdate(int id, float oldValue, float oldX, float oldY) {
+		int bucket = bucketOf(mX[id], mY[id]);
+		if (bucket != mBucket[id]) {
+			unlink(id);
+			link(id, bucket);
+		}
+	}
+
+	@Override
+	protected int query(float x, float y, float value, float radius2, Filter filter) {
+		int cx = cell(x);
+		int cy = cell(y);
+
+		int best = -1;
+		float dmin = radius2;
+
+		for (int i = -1; i <= 1; i++) {
+			for (int j = -1; j <= 1; j++) {
+				int bucket = hash(cx + i, cy + j);
+
+				// Neighboring cells may collide into the same bucket; don't visit it twice.
+				if (alreadyVisited(bucket, cx, cy, i, j)) {
+					continue;
+				}
+
+				for (int id = mHeads[bucket]; id != EMPTY; id = mNext[id]) {
+					float d = distance2(id, x, y);
+					if (d > dmin) {
+						continue;
+					}
+					// On ties, prefer the lowest id, like a linear scan would
+					if (d == dmin && best != -1 && id > best) {
+						continue;
+					}
+					if (filter.isHittable(id)) {
+						best = id;
+						dmin = d;
+					}
+				}
+			}
+		}
+
+		return best;
+	}
+
+	private boolean alreadyVisited(int bucket, int cx, int cy, int i, int j) {
+		for (int a = -1; a <= i; a++) {
+			for (int b = -1; b <= 1; b++) {
+				if (a == i && b >= j) {
+					return false;
+				}
+				if (hash(cx + a, cy + b) == bucket) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private void link(int id, int bucket) {
+		int head = mHeads[bucket];
+		mNext[id] = head;
+		mPrev[id] = EMPTY;
+		if (head != EMPTY) {
+			mPrev[head] = id;
+		}
+		mHeads[bucket] = id;
+		mBucket[id] = bucket;
+	}
+
+	private void unlink(int id) {
+		int prev = mPrev[id];
+		int next = mNext[id];
+		if (prev != EMPTY) {
+			mNext[prev] = next;
+		}
+		else {
+			mHeads[mBucket[id]] = next;
+		}
+		if (next != EMPTY) {
+			mPrev[next] = prev;
+		}
+	}
+
+	private int cell(float v) {
+		return (int) Math.floor(v / mCellSize);
+	}
+
+	private int bucketOf(float x, float y) {
+		return hash(cell(x), cell(y));
+	}
+
+	private int hash(int cx, int cy) {
+		return ((cx * 73856093) ^ (cy * 19349663)) & mMask;
+	}
+}
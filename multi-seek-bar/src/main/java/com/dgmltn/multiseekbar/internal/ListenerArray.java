@@ -0,0 +1,69 @@
+package com.dgmltn.multiseekbar.internal;
+
+import java.lang.reflect.Array;
+
+/**
+ * A copy-on-write set of listeners. Adding or removing a listener replaces the backing
+ * array; dispatching just iterates the current array by index, which allocates nothing and
+ * is safe against listeners that add or remove listeners while being notified.
+ */
+public final class ListenerArray<T> {
+
+	private final Class<T> type;
+	private T[] listeners;
+
+	public ListenerArray(Class<T> type) {
+		this.type = type;
+		this.listeners = newArray(0);
+	}
+
+	/**
+	 * Returns the current listeners. The array must not be modified.
+	 */
+	public T[] get() {
+		return listeners;
+	}
+
+	public boolean isEmpty() {
+		return listeners.length == 0;
+	}
+
+	public void add(T listener) {
+		if (listener == null || indexOf(listener) > -1) {
+			return;
+		}
+		T[] a = newArray(listeners.length + 1);
+		System.arraycopy(listeners, 0, a, 0, listeners.length);
+		a[listeners.length] = listener;
+		listeners = a;
+	}
+
+	public void remove(T listener) {
+		int i = indexOf(listener);
+		if (i < 0) {
+			return;
+		}
+		T[] a = newArray(listeners.length - 1);
+		System.arraycopy(listeners, 0, a, 0, i);
+		System.arraycopy(listeners, i + 1, a, i, listeners.length - i - 1);
+		listeners = a;
+	}
+
+	public void clear() {
+		listeners = newArray(0);
+	}
+
+	private int indexOf(T listener) {
+		for (int i = 0; i < listeners.length; i++) {
+			if (listeners[i] == listener) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@SuppressWarnings("unchecked")
+	private T[] newArray(int size) {
+		return (T[]) Array.newInstance(type, size);
+	}
+}
@@ -0,0 +1,188 @@
+package com.dgmltn.multiseekbar.internal;
+
+/**
+ * The minimum and maximum of a long series of samples, precomputed over blocks of
+ * {@link #BASE_BLOCK} samples, then over pairs of those blocks, pairs of pairs, and so on.
+ * <p>
+ * The extremes of any range are then combined from at most two blocks per level, plus fewer
+ * than {@code 2 * BASE_BLOCK} samples at its ends read from the source: the cost of a query
+ * depends on the number of levels, not on the length of the range. Growing the series only
+ * recomputes the blocks that the new samples fall in.
+ */
+public class MinMaxPyramid {
+
+	/**
+	 * Reads the extremes of raw samples.
+	 */
+	public interface Source {
+		/**
+		 * Writes the minimum and maximum of samples {@code from} (inclusive) to {@code to}
+		 * (exclusive) into {@code out[0]} and {@code out[1]}; the range is never empty.
+		 */
+		void getMinMax(long from, long to, float[] out);
+	}
+
+	public static final int BASE_BLOCK = 64;
+
+	// Level k has blocks of BASE_BLOCK << k samples; block b of level k covers blocks 2b and
+	// 2b + 1 of level k - 1
+	private float[][] mins = new float[0][];
+	private float[][] maxs = new float[0][];
+	private int[] counts = new int[0];
+	private int levelCount = 0;
+	private long length = 0;
+
+	private final float[] mTmp = new float[2];
+
+	public long getLength() {
+		return length;
+	}
+
+	public int getLevelCount() {
+		return levelCount;
+	}
+
+	public void clear() {
+		levelCount = 0;
+		length = 0;
+	}
+
+	/**
+	 * Extends the pyramid to the first {@code newLength} samples of {@code source}, of which
+	 * the pyramid already covers the first {@link #getLength()}.
+	 */
+	public void extend(Source source, long newLength) {
+		if (newLength <= length) {
+			return;
+		}
+		// The block holding the old end may have been partial: recompute it
+		long first = length / BASE_BLOCK;
+		long end = (newLength + BASE_BLOCK - 1) / BASE_BLOCK;
+		if (end > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("too many samples: " + newLength);
+		}
+		length = newLength;
+
+		ensureLevel(0, (int) end);
+		for (int b = (int) first; b < end; b++) {
+			long from = (long) b * BASE_BLOCK;
+			source.getMinMax(from, Math.min(from + BASE_BLOCK, newLength), mTmp);
+			mins[0][b] = mTmp[0];
+			maxs[0][b] = mTmp[1];
+		}
+		counts[0] = (int) end;
+
+		int level = 0;
+		int firstBlock = (int) first;
+		while (counts[level] > 1) {
+			int below = level;
+			level++;
+			int count = (counts[below] + 1) / 2;
+			ensureLevel(level, count);
+			firstBlock /= 2;
+			for (int b = firstBlock; b < count; b++) {
+				int c = 2 * b;
+				float min = mins[below][c];
+				float max = maxs[below][c];
+				if (c + 1 < counts[below]) {
+					min = Math.min(min, mins[below][c + 1]);
+					max = Math.max(max, maxs[below][c + 1]);
+				}
+				mins[level][b] = min;
+				maxs[level][b] = max;
+			}
+			counts[level] = count;
+		}
+		levelCount = level + 1;
+	}
+
+	private void ensureLevel(int level, int count) {
+		if (level >= mins.length) {
+			int n = Math.max(level + 1, mins.length * 2);
+			float[][] m = new float[n][];
+			float[][] x = new float[n][];
+			int[] c = new int[n];
+			System.arraycopy(mins, 0, m, 0, mins.length);
+			System.arraycopy(maxs, 0, x, 0, maxs.length);
+			System.arraycopy(counts, 0, c, 0, counts.length);
+			mins = m;
+			maxs = x;
+			counts = c;
+		}
+		if (level >= levelCount) {
+			// A level that didn't exist yet starts empty, even if arrays are left from clear()
+			counts[level] = 0;
+		}
+		if (mins[level] == null || mins[level].length < count) {
+			int size = Math.max(count, mins[level] == null ? 0 : mins[level].length + mins[level].length / 2);
+			float[] m = new float[size];
+			float[] x = new float[size];
+			if (mins[level] != null) {
+				System.arraycopy(mins[level], 0, m, 0, counts[level]);
+				System.arraycopy(maxs[level], 0, x, 0, counts[level]);
+			}
+			mins[level] = m;
+			maxs[level] = x;
+		}
+	}
+
+	/**
+	 * Writes the minimum and maximum of samples {@code from} (inclusive) to {@code to}
+	 * (exclusive) into {@code out[0]} and {@code out[1]}. The range is clamped to the
+	 * samples covered by the pyramid.
+	 *
+	 * @return false, leaving {@code out} untouched, if the clamped range is empty
+	 */
+	public boolean getMinMax(Source source, long from, long to, float[] out) {
+		from = Math.max(0, from);
+		to = Math.min(length, to);
+		if (from >= to) {
+			return false;
+		}
+
+		float min = Float.MAX_VALUE;
+		float max = -Float.MAX_VALUE;
+
+		// Whole level 0 blocks in the middle, raw samples at the ends
+		long b0 = (from + BASE_BLOCK - 1) / BASE_BLOCK;
+		long b1 = to == length ? counts[0] : to / BASE_BLOCK;
+		if (b0 >= b1) {
+			source.getMinMax(from, to, out);
+			return true;
+		}
+		long head = b0 * BASE_BLOCK;
+		if (from < head) {
+			source.getMinMax(from, head, mTmp);
+			min = mTmp[0];
+			max = mTmp[1];
+		}
+		long tail = b1 * BASE_BLOCK;
+		if (tail < to) {
+			source.getMinMax(tail, to, mTmp);
+			min = Math.min(min, mTmp[0]);
+			max = Math.max(max, mTmp[1]);
+		}
+
+		// Climb the levels, taking the blocks that stick out of an aligned pair
+		int lo = (int) b0;
+		int hi = (int) b1;
+		for (int level = 0; lo < hi && level < levelCount; level++) {
+			if ((lo & 1) != 0) {
+				min = Math.min(min, mins[level][lo]);
+				max = Math.max(max, maxs[level][lo]);
+				lo++;
+			}
+			if ((hi & 1) != 0) {
+				hi--;
+				min = Math.min(min, mins[level][hi]);
+				max = Math.max(max, maxs[level][hi]);
+			}
+			lo >>= 1;
+			hi >>= 1;
+		}
+
+		out[0] = min;
+		out[1] = max;
+		return true;
+	}
+}
@@ -0,0 +1,183 @@
+package com.dgmltn.multiseekbar.internal;
+
+import android.graphics.Path;
+import android.graphics.PathMeasure;
+
+/**
+ * A path placed in view coordinates together with everything measured from it: a
+ * PathMeasure for each of its contours, its arc-length table and the segment grid used to
+ * project touches onto it.
+ * <p>
+ * Every contour of the path is part of the bar, in order: distances along the bar run
+ * through the first contour, then jump to the start of the next one, so a track may be made
+ * of disjoint pieces. Empty contours are skipped.
+ * <p>
+ * Instances are shared between bars through {@link PathGeometryCache} and must be treated as
+ * immutable: read them, never modify the path or rebuild the table. Like the views using
+ * them, they must only be used from the UI thread, which also lets the simplified render
+ * paths be built lazily. Bars sharing a geometry may draw it at different tolerances, so a
+ * simplified path is kept per tolerance, and never modified once returned.
+ */
+public final class PathGeometry {
+
+	public static final int MIN_AUTO_SEGMENTS = 16;
+	public static final int MAX_AUTO_SEGMENTS = 4096;
+
+	/**
+	 * The most simplified render paths kept per geometry, one per tolerance.
+	 */
+	public static final int MAX_RENDER_PATHS = 4;
+
+	// UI thread only, like the geometries
+	private static final PathSimplifier simplifier = new PathSimplifier();
+
+	/**
+	 * The geometry of an empty path, for bars that have no path yet.
+	 */
+	public static final PathGeometry EMPTY = new PathGeometry(new Path(), 1, 1f);
+
+	public final Path path;
+	public final ArcLengthTable table = new ArcLengthTable();
+	public final PolylineIndex index = new PolylineIndex();
+
+	private PathMeasure[] contours = new PathMeasure[0];
+	// Cumulative length before each contour, plus the total length
+	private float[] contourStarts = new float[1];
+	private int contourCount = 0;
+
+	// Simplified paths by tolerance, oldest first
+	private final Path[] renderPaths = new Path[MAX_RENDER_PATHS];
+	private final float[] renderTolerances = new float[MAX_RENDER_PATHS];
+	private int renderPathCount = 0;
+
+	/**
+	 * Measures {@code path}, which the new instance takes ownership of.
+	 *
+	 * @param segments      the number of segments of the arc-length table, or 0 to pick one
+	 *                      segment about every {@code sampleSpacing}
+	 * @param sampleSpacing the spacing between samples when {@code segments} is 0
+	 */
+	public PathGeometry(Path path, int segments, float sampleSpacing) {
+		this.path = path;
+
+		// PathMeasure only moves forward through contours, so each gets its own
+		PathMeasure walker = new PathMeasure(path, false);
+		do {
+			float length = walker.getLength();
+			if (length <= 0f) {
+				continue;
+			}
+			Path contour = new Path();
+			walker.getSegment(0f, length, contour, true);
+			addContour(new PathMeasure(contour, false), length);
+		} while (walker.nextContour());
+
+		float length = contourStarts[contourCount];
+		if (segments <= 0) {
+			segments = (int) Math.ceil(length / Math.max(1e-3f, sampleSpacing));
+			segments = Math.max(MIN_AUTO_SEGMENTS, Math.min(MAX_AUTO_SEGMENTS, segments));
+		}
+		table.build(contours, contourStarts, contourCount, segments);
+		index.build(table.getSamples(), ArcLengthTable.STRIDE, table.getSampleCount() - 1,
+			table.getContourSampleStarts(), contourCount);
+	}
+
+	private void addContour(PathMeasure measure, float length) {
+		if (contourCount == contours.length) {
+			PathMeasure[] m = new PathMeasure[Math.max(2, contourCount * 2)];
+			System.arraycopy(contours, 0, m, 0, contourCount);
+			contours = m;
+			float[] s = new float[m.length + 1];
+			System.arraycopy(contourStarts, 0, s, 0, contourCount + 1);
+			contourStarts = s;
+		}
+		contours[contourCount] = measure;
+		contourStarts[contourCount + 1] = contourStarts[contourCount] + length;
+		contourCount++;
+	}
+
+	public float getLength() {
+		return contourStarts[contourCount];
+	}
+
+	public int getContourCount() {
+		return contourCount;
+	}
+
+	/**
+	 * Like {@link PathMeasure#getPosTan}, with {@code distance} running through all contours.
+	 */
+	public boolean getPosTan(float distance, float[] pos, float[] tan) {
+		if (contourCount == 0) {
+			return false;
+		}
+		int c = findContour(distance);
+		return contours[c].getPosTan(distance - contourStarts[c], pos, tan);
+	}
+
+	/**
+	 * Like {@link PathMeasure#getSegment}, with distances running through all contours. Each
+	 * contour the range touches adds its own piece, starting with a moveTo.
+	 */
+	public void getSegment(float startDistance, float endDistance, Path dst) {
+		if (contourCount == 0 || endDistance <= startDistance) {
+			return;
+		}
+		for (int c = findContour(startDistance); c < contourCount && contourStarts[c] < endDistance; c++) {
+			float from = Math.max(startDistance, contourStarts[c]) - contourStarts[c];
+			float to = Math.min(endDistance, contourStarts[c + 1]) - contourStarts[c];
+			if (to > from) {
+				contours[c].getSegment(from, to, dst, true);
+			}
+		}
+	}
+
+	/**
+	 * @return the last contour starting at or before {@code distance}, by binary search
+	 */
+	private int findContour(float distance) {
+		int lo = 0;
+		int hi = contourCount - 1;
+		while (lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if (contourStarts[mid] <= distance) {
+				lo = mid;
+			}
+			else {
+				hi = mid - 1;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * Returns a path to draw in place of {@link #path}, simplified so that it stays within
+	 * {@code tolerance} of it. Only for drawing: positions and hit testing keep using the
+	 * exact geometry. The returned path is shared, and must not be modified.
+	 *
+	 * @param tolerance in pixels; 0 or less returns the exact path
+	 */
+	public Path getRenderPath(float tolerance) {
+		if (tolerance <= 0f) {
+			return path;
+		}
+		for (int i = 0; i < renderPathCount; i++) {
+			if (renderTolerances[i] == tolerance) {
+				return renderPaths[i];
+			}
+		}
+
+		if (renderPathCount == MAX_RENDER_PATHS) {
+			// Drop the oldest; a bar still drawing it finds it unchanged
+			System.arraycopy(renderPaths, 1, renderPaths, 0, MAX_RENDER_PATHS - 1);
+			System.arraycopy(renderTolerances, 1, renderTolerances, 0, MAX_RENDER_PATHS - 1);
+			renderPathCount--;
+		}
+		Path simplified = new Path();
+		simplifier.simplify(path, tolerance, simplified);
+		renderPaths[renderPathCount] = simplified;
+		renderTolerances[renderPathCount] = tolerance;
+		renderPathCount++;
+		return simplified;
+	}
+}
@@ -0,0 +1,158 @@
+package com.dgmltn.multiseekbar.internal;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import android.graphics.Matrix;
+import android.graphics.Path;
+import android.graphics.RectF;
+
+/**
+ * A process-wide cache of path geometry, so that bars showing the same path string don't
+ * parse and measure it again and again (e.g. every row of a list, on every bind).
+ * <p>
+ * There are two least recently used levels. The first maps a path string to its parsed,
+ * untransformed Path and bounds. The second maps a path string placed in a given rectangle,
+ * at a given resolution, to its fully measured {@link PathGeometry}, which identical bars
+ * share.
+ */
+public final class PathGeometryCache {
+
+	public static final int MAX_PARSED_PATHS = 32;
+	public static final int MAX_GEOMETRIES = 64;
+
+	private static final class Parsed {
+		final Path path = new Path();
+		final RectF bounds = new RectF();
+	}
+
+	private static final class Key {
+		final String data;
+		final float left, top, right, bottom;
+		final int segments;
+		final float sampleSpacing;
+
+		Key(String data, RectF bounds, int segments, float sampleSpacing) {
+			this.data = data;
+			this.left = bounds.left;
+			this.top = bounds.top;
+			this.right = bounds.right;
+			this.bottom = bounds.bottom;
+			this.segments = segments;
+			this.sampleSpacing = sampleSpacing;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key k = (Key) o;
+			return data.equals(k.data)
+				&& left == k.left && top == k.top && right == k.right && bottom == k.bottom
+				&& segments == k.segments && sampleSpacing == k.sampleSpacing;
+		}
+
+		@Override
+		public int hashCode() {
+			int h = data.hashCode();
+			h = 31 * h + Float.floatToIntBits(left);
+			h = 31 * h + Float.floatToIntBits(top);
+			h = 31 * h + Float.floatToIntBits(right);
+			h = 31 * h + Float.floatToIntBits(bottom);
+			h = 31 * h + segments;
+			h = 31 * h + Float.floatToIntBits(sampleSpacing);
+			return h;
+		}
+	}
+
+	private static final LinkedHashMap<String, Parsed> parsed = lru(MAX_PARSED_PATHS);
+	private static final LinkedHashMap<Key, PathGeometry> geometries = lru(MAX_GEOMETRIES);
+
+	private static final SvgPathParser parser = new SvgPathParser();
+	private static final Matrix matrix = new Matrix();
+
+	private static long parseHits, parseMisses;
+	private static long geometryHits, geometryMisses;
+
+	private PathGeometryCache() {
+	}
+
+	/**
+	 * Returns the geometry of {@code data}, scaled so that the path's bounds span
+	 * {@code bounds} and offset to its top left corner.
+	 *
+	 * @param segments      resolution of the arc-length table; 0 for automatic
+	 * @param sampleSpacing sample spacing used by the automatic resolution
+	 * @throws IllegalArgumentException if {@code data} is not a valid path
+	 */
+	public static synchronized PathGeometry get(String data, RectF bounds, int segments, float sampleSpacing) {
+		Key key = new Key(data, bounds, segments, sampleSpacing);
+		PathGeometry geometry = geometries.get(key);
+		if (geometry != null) {
+			geometryHits++;
+			return geometry;
+		}
+		geometryMisses++;
+
+		Parsed p = getParsed(data);
+		Path path = new Path(p.path);
+		matrix.setScale(bounds.width() / p.bounds.width(), bounds.height() / p.bounds.height(), 0f, 0f);
+		matrix.postTranslate(bounds.left, bounds.top);
+		path.transform(matrix);
+
+		geometry = new PathGeometry(path, segments, sampleSpacing);
+		geometries.put(key, geometry);
+		return geometry;
+	}
+
+	private static Parsed getParsed(String data) {
+		Parsed p = parsed.get(data);
+		if (p != null) {
+			parseHits++;
+			return p;
+		}
+		parseMisses++;
+
+		p = new Parsed();
+		parser.parse(data, p.path);
+		p.path.computeBounds(p.bounds, true);
+		parsed.put(data, p);
+		return p;
+	}
+
+	public static synchronized long getParseHitCount() {
+		return parseHits;
+	}
+
+	public static synchronized long getParseMissCount() {
+		return parseMisses;
+	}
+
+	public static synchronized long getGeometryHitCount() {
+		return geometryHits;
+	}
+
+	public static synchronized long getGeometryMissCount() {
+		return geometryMisses;
+	}
+
+	/**
+	 * Drops every cached path and resets the counters.
+	 */
+	public static synchronized void clear() {
+		parsed.clear();
+		geometries.clear();
+		parseHits = parseMisses = 0;
+		geometryHits = geometryMisses = 0;
+	}
+
+	private static <K, V> LinkedHashMap<K, V> lru(final int maxSize) {
+		return new LinkedHashMap<K, V>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+}
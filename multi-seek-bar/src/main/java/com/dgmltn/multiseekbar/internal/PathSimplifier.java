@@ -0,0 +1,149 @@
+package com.dgmltn.multiseekbar.internal;
+
+import android.graphics.Path;
+import android.graphics.PathMeasure;
+
+/**
+ * Reduces a path to a polyline that stays within a given distance of it: every contour is
+ * flattened into points spaced by the tolerance, then thinned with Douglas–Peucker, which
+ * only keeps the points needed to stay within the tolerance. A track made of thousands of
+ * curves, drawn a few hundred pixels wide, comes out as a few hundred line segments.
+ * <p>
+ * Contours longer than {@link #MAX_WINDOW_SAMPLES} samples are flattened and thinned one
+ * window of that many samples at a time, so memory stays bounded while the tolerance holds
+ * for any length; only the point where two windows meet is kept even if it isn't needed.
+ * <p>
+ * An instance reuses its measure and buffers between calls, so it must only be used from
+ * one thread.
+ */
+public final class PathSimplifier {
+
+	/**
+	 * The most samples flattened and thinned at once.
+	 */
+	public static final int MAX_WINDOW_SAMPLES = 16384;
+
+	private final PathMeasure measure = new PathMeasure();
+	private final float[] pos = new float[2];
+	private float[] points = new float[0];
+	private boolean[] keep = new boolean[0];
+	private int[] stack = new int[0];
+
+	/**
+	 * Replaces the contents of {@code out} with a simplified copy of {@code src}.
+	 *
+	 * @param tolerance the largest distance, in the units of the path, allowed between
+	 *                  {@code src} and {@code out}
+	 */
+	public void simplify(Path src, float tolerance, Path out) {
+		out.rewind();
+		measure.setPath(src, false);
+
+		do {
+			float length = measure.getLength();
+			if (length <= 0f) {
+				continue;
+			}
+
+			// Flatten: samples half a tolerance apart cut corners by a quarter of it at most
+			long total = Math.max(1L, (long) Math.ceil(length / (tolerance / 2f)));
+			int windows = (int) ((total + MAX_WINDOW_SAMPLES - 1) / MAX_WINDOW_SAMPLES);
+			for (int w = 0; w < windows; w++) {
+				long first = total * w / windows;
+				long last = total * (w + 1) / windows;
+				int n = (int) (last - first);
+				ensureCapacity(n);
+				for (int i = 0; i <= n; i++) {
+					measure.getPosTan(length * (first + i) / total, pos, null);
+					points[2 * i] = pos[0];
+					points[2 * i + 1] = pos[1];
+				}
+
+				reduce(points, n, tolerance / 2f, keep, stack);
+
+				if (w == 0) {
+					out.moveTo(points[0], points[1]);
+				}
+				for (int i = 1; i <= n; i++) {
+					if (keep[i]) {
+						out.lineTo(points[2 * i], points[2 * i + 1]);
+					}
+				}
+			}
+			if (measure.isClosed()) {
+				out.close();
+			}
+		} while (measure.nextContour());
+
+		// Don't hold on to the source path
+		measure.setPath(null, false);
+	}
+
+	private void ensureCapacity(int n) {
+		if (points.length < (n + 1) * 2) {
+			points = new float[(n + 1) * 2];
+			keep = new boolean[n + 1];
+			stack = new int[(n + 1) * 2];
+		}
+	}
+
+	/**
+	 * Douglas–Peucker over points 0..n, with an explicit stack instead of recursion. Marks
+	 * the points to keep in {@code keep}.
+	 */
+	private static void reduce(float[] points, int n, float tolerance, boolean[] keep, int[] stack) {
+		for (int i = 0; i <= n; i++) {
+			keep[i] = false;
+		}
+		keep[0] = keep[n] = true;
+		float tolerance2 = tolerance * tolerance;
+
+		int top = 0;
+		stack[top++] = 0;
+		stack[top++] = n;
+		while (top > 0) {
+			int last = stack[--top];
+			int first = stack[--top];
+			if (last - first < 2) {
+				continue;
+			}
+
+			float ax = points[2 * first];
+			float ay = points[2 * first + 1];
+			float dx = points[2 * last] - ax;
+			float dy = points[2 * last + 1] - ay;
+			float len2 = dx * dx + dy * dy;
+
+			int farthest = -1;
+			float max = tolerance2;
+			for (int i = first + 1; i < last; i++) {
+				float px = points[2 * i] - ax;
+				float py = points[2 * i + 1] - ay;
+				float d2;
+				if (len2 == 0f) {
+					d2 = px * px + py * py;
+				}
+				else {
+					// Distance to the segment, not the infinite line, so that closed
+					// contours and backtracking curves are handled
+					float t = Math.max(0f, Math.min(1f, (px * dx + py * dy) / len2));
+					float ex = px - t * dx;
+					float ey = py - t * dy;
+					d2 = ex * ex + ey * ey;
+				}
+				if (d2 > max) {
+					max = d2;
+					farthest = i;
+				}
+			}
+
+			if (farthest > -1) {
+				keep[farthest] = true;
+				stack[top++] = first;
+				stack[top++] = farthest;
+				stack[top++] = farthest;
+				stack[top++] = last;
+			}
+		}
+	}
+}
@@ -0,0 +1,262 @@
+package com.dgmltn.multiseekbar.internal;
+
+/**
+ * A uniform grid over the segments of a polyline, for finding the point of the polyline
+ * closest to an arbitrary point.
+ * <p>
+ * Each cell lists the segments whose bounding box overlaps it, in one flat array
+ * (cellStart / cellItems). A query visits cells in growing square rings around the
+ * point and stops as soon as no unvisited cell can hold anything closer, so it only
+ * looks at the few segments near the point. Queries do not allocate.
+ */
+public class PolylineIndex {
+
+	// Cap on the number of cells per side, to bound memory on degenerate paths
+	private static final int MAX_CELLS_PER_SIDE = 256;
+
+	private float[] points = new float[0];
+	private int stride;
+	private int segments;
+	// Segments joining the end of one contour to the start of the next, which aren't indexed
+	private boolean[] gaps = new boolean[0];
+
+	private float left, top, cellSize;
+	private int cols, rows;
+	private int[] cellStart = new int[1];
+	private int[] cellItems = new int[0];
+
+	// Segment visit stamps, so a segment listed in several cells is measured once per query
+	private int[] visited = new int[0];
+	private int stamp = 0;
+
+	private float lastDistanceSquared;
+
+	/**
+	 * Indexes the polyline through the first {@code segments + 1} points of
+	 * {@code points}. Point {@code i} is at {@code points[i * stride]},
+	 * {@code points[i * stride + 1]}. The array is kept by reference, not copied.
+	 */
+	public void build(float[] points, int stride, int segments) {
+		build(points, stride, segments, null, 0);
+	}
+
+	/**
+	 * Like {@link #build(float[], int, int)}, for points that form several polylines, one
+	 * after the other. {@code contourStarts} holds the index of the first point of each
+	 * polyline; no segment joins a polyline to the next one.
+	 */
+	public void build(float[] points, int stride, int segments, int[] contourStarts, int contourCount) {
+		if (gaps.length < Math.max(0, segments)) {
+			gaps = new boolean[segments];
+		}
+		for (int s = 0; s < segments; s++) {
+			gaps[s] = false;
+		}
+		for (int c = 1; c < contourCount; c++) {
+			int s = contourStarts[c] - 1;
+			if (s >= 0 && s < segments) {
+				gaps[s] = true;
+			}
+		}
+
+		this.points = points;
+		this.stride = stride;
+		this.segments = Math.max(0, segments);
+		if (this.segments == 0) {
+			// Nothing to find; findNearestPosition() returns early
+			return;
+		}
+
+		float right = -Float.MAX_VALUE, bottom = -Float.MAX_VALUE;
+		left = Float.MAX_VALUE;
+		top = Float.MAX_VALUE;
+		float total = 0f;
+		for (int i = 0; i <= this.segments; i++) {
+			float x = points[i * stride];
+			float y = points[i * stride + 1];
+			left = Math.min(left, x);
+			top = Math.min(top, y);
+			right = Math.max(right, x);
+			bottom = Math.max(bottom, y);
+			if (i > 0 && !gaps[i - 1]) {
+				total += Math.hypot(x - points[(i - 1) * stride], y - points[(i - 1) * stride + 1]);
+			}
+		}
+		float width = right - left;
+		float height = bottom - top;
+
+		// About one segment per cell, but never cells smaller than a segment
+		float n = Math.max(1, this.segments);
+		cellSize = (float) Math.sqrt(width * height / n);
+		cellSize = Math.max(cellSize, total / n);
+		cellSize = Math.max(cellSize, Math.max(width, height) / MAX_CELLS_PER_SIDE);
+		cellSize = Math.max(cellSize, 1e-3f);
+		cols = (int) (width / cellSize) + 1;
+		rows = (int) (height / cellSize) + 1;
+
+		int cells = cols * rows;
+		if (cellStart.length < cells + 1) {
+			cellStart = new int[cells + 1];
+		}
+		for (int c = 0; c <= cells; c++) {
+			cellStart[c] = 0;
+		}
+
+		// Count, prefix sum, then fill
+		for (int s = 0; s < this.segments; s++) {
+			if (!gaps[s]) {
+				forEachCell(s, null);
+			}
+		}
+		int sum = 0;
+		for (int c = 0; c < cells; c++) {
+			int count = cellStart[c];
+			cellStart[c] = sum;
+			sum += count;
+		}
+		cellStart[cells] = sum;
+		if (cellItems.length < sum) {
+			cellItems = new int[sum];
+		}
+		int[] fill = new int[cells];
+		for (int s = 0; s < this.segments; s++) {
+			if (!gaps[s]) {
+				forEachCell(s, fill);
+			}
+		}
+
+		if (visited.length < this.segments) {
+			visited = new int[this.segments];
+		}
+		for (int s = 0; s < this.segments; s++) {
+			visited[s] = 0;
+		}
+		stamp = 0;
+	}
+
+	/**
+	 * Counts segment {@code s} in the cells its bounding box overlaps, or stores it there
+	 * when {@code fill} (per-cell insertion offsets) is given.
+	 */
+	private void forEachCell(int s, int[] fill) {
+		int a = s * stride;
+		int b = a + stride;
+		int c0 = col(Math.min(points[a], points[b]));
+		int c1 = col(Math.max(points[a], points[b]));
+		int r0 = row(Math.min(points[a + 1], points[b + 1]));
+		int r1 = row(Math.max(points[a + 1], points[b + 1]));
+		for (int r = r0; r <= r1; r++) {
+			for (int c = c0; c <= c1; c++) {
+				int cell = r * cols + c;
+				if (fill == null) {
+					cellStart[cell]++;
+				}
+				else {
+					cellItems[cellStart[cell] + fill[cell]++] = s;
+				}
+			}
+		}
+	}
+
+	private int col(float x) {
+		return Math.max(0, Math.min(cols - 1, (int) ((x - left) / cellSize)));
+	}
+
+	private int row(float y) {
+		return Math.max(0, Math.min(rows - 1, (int) ((y - top) / cellSize)));
+	}
+
+	/**
+	 * @return the position of the polyline point closest to (x, y), as the index of the
+	 * segment it is on plus its position within that segment (from 0 to 1), or 0 if the
+	 * polyline is empty
+	 */
+	public float findNearestPosition(float x, float y) {
+		lastDistanceSquared = Float.MAX_VALUE;
+		if (segments == 0) {
+			return 0f;
+		}
+		if (++stamp == Integer.MAX_VALUE) {
+			for (int s = 0; s < segments; s++) {
+				visited[s] = 0;
+			}
+			stamp = 1;
+		}
+
+		// Points outside the grid are searched from their projection onto it: nothing in
+		// the grid is closer to (x, y) than it is to the projection
+		int cx = col(x);
+		int cy = row(y);
+		int maxRing = Math.max(Math.max(cx, cols - 1 - cx), Math.max(cy, rows - 1 - cy));
+
+		float best = Float.MAX_VALUE;
+		float bestT = 0f;
+		for (int ring = 0; ring <= maxRing; ring++) {
+			for (int r = cy - ring; r <= cy + ring; r++) {
+				if (r < 0 || r >= rows) {
+					continue;
+				}
+				boolean edgeRow = r == cy - ring || r == cy + ring;
+				int step = edgeRow ? 1 : Math.max(1, 2 * ring);
+				for (int c = cx - ring; c <= cx + ring; c += step) {
+					if (c < 0 || c >= cols) {
+						continue;
+					}
+					int cell = r * cols + c;
+					for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+						int s = cellItems[k];
+						if (visited[s] == stamp) {
+							continue;
+						}
+						visited[s] = stamp;
+						float t = project(s, x, y);
+						if (projectedDistanceSquared < best) {
+							best = projectedDistanceSquared;
+							bestT = s + t;
+						}
+					}
+				}
+			}
+			// Every segment not seen yet lies entirely in cells of the next rings or beyond
+			float reach = ring * cellSize;
+			if (best <= reach * reach) {
+				break;
+			}
+		}
+
+		lastDistanceSquared = best;
+		return bestT;
+	}
+
+	/**
+	 * @return the squared distance from the point of the last {@link #findNearestPosition} query
+	 * to the polyline
+	 */
+	public float getLastDistanceSquared() {
+		return lastDistanceSquared;
+	}
+
+	private float projectedDistanceSquared;
+
+	/**
+	 * Projects (x, y) onto segment {@code s}.
+	 *
+	 * @return the position of the projection within the segment, from 0 to 1. The squared
+	 * distance is left in projectedDistanceSquared.
+	 */
+	private float project(int s, float x, float y) {
+		int a = s * stride;
+		int b = a + stride;
+		float ax = points[a];
+		float ay = points[a + 1];
+		float dx = points[b] - ax;
+		float dy = points[b + 1] - ay;
+		float len2 = dx * dx + dy * dy;
+		float t = len2 > 0f ? ((x - ax) * dx + (y - ay) * dy) / len2 : 0f;
+		t = Math.max(0f, Math.min(1f, t));
+		float px = ax + t * dx - x;
+		float py = ay + t * dy - y;
+		projectedDistanceSquared = px * px + py * py;
+		return t;
+	}
+}
@@ -0,0 +1,229 @@
+package com.dgmltn.multiseekbar.internal;
+
+import android.graphics.Bitmap;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.OperationCanceledException;
+import android.util.LruCache;
+
+import com.dgmltn.multiseekbar.ThumbView;
+
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Loads the scrub previews of one thumb from a {@link ThumbView.PreviewProvider} on a
+ * background thread, and keeps them in an LRU cache bounded in bytes.
+ * <p>
+ * Values are grouped into buckets of {@code bucketSize}: all the values of a bucket share
+ * one preview, loaded once. At most one load is pending at a time; asking for another bucket
+ * cancels it, so a fast drag only loads where the finger stops. While a preview loads, the
+ * cached preview of the nearest bucket is shown instead. Finished loads are cached even when
+ * they were cancelled too late, since the finger is likely to come back near them.
+ * <p>
+ * Everything but the provider call happens on the main thread.
+ */
+public class PreviewLoader {
+
+	/**
+	 * Receives the preview to show, on the main thread.
+	 */
+	public interface Callback {
+		/**
+		 * @param preview the preview to show, or null for none
+		 * @param exact   false if {@code preview} belongs to a nearby bucket, shown until the
+		 *                requested one is loaded
+		 */
+		void onPreview(Bitmap preview, boolean exact);
+	}
+
+	// One background thread for all thumbs: loads are cancelled quickly, so they rarely queue
+	private static ExecutorService sExecutor;
+
+	private static synchronized ExecutorService getExecutor() {
+		if (sExecutor == null) {
+			sExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "MultiSeekBar preview");
+					t.setDaemon(true);
+					t.setPriority(Thread.MIN_PRIORITY);
+					return t;
+				}
+			});
+		}
+		return sExecutor;
+	}
+
+	private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+
+	private final ThumbView.PreviewProvider provider;
+	private final float bucketSize;
+	private final Callback callback;
+
+	// Cached buckets, kept in step with the cache for nearest bucket lookups
+	private final TreeSet<Long> cachedBuckets = new TreeSet<>();
+	private final LruCache<Long, Bitmap> cache;
+
+	private Load pending;
+	private long shownBucket = Long.MIN_VALUE;
+	private boolean shownExact = false;
+
+	/**
+	 * @param bucketSize    the range of values sharing a preview; values are rounded to the
+	 *                      nearest multiple of it
+	 * @param maxCacheBytes the most bytes of bitmaps to keep
+	 */
+	public PreviewLoader(ThumbView.PreviewProvider provider, float bucketSize, int maxCacheBytes,
+		Callback callback) {
+		if (bucketSize <= 0f) {
+			throw new IllegalArgumentException("bucketSize must be positive");
+		}
+		this.provider = provider;
+		this.bucketSize = bucketSize;
+		this.callback = callback;
+		cache = new LruCache<Long, Bitmap>(Math.max(1, maxCacheBytes)) {
+			@Override
+			protected int sizeOf(Long key, Bitmap value) {
+				return value.getByteCount();
+			}
+
+			@Override
+			protected void entryRemoved(boolean evicted, Long key, Bitmap oldValue, Bitmap newValue) {
+				// Not recycled: it may still be on screen
+				if (newValue == null) {
+					cachedBuckets.remove(key);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Shows the preview for {@code value}: at once if its bucket is cached, otherwise the
+	 * nearest cached one while it loads.
+	 */
+	public void request(float value) {
+		long bucket = Math.round((double) value / bucketSize);
+		if (bucket == shownBucket && shownExact) {
+			return;
+		}
+
+		Bitmap cached = cache.get(bucket);
+		if (cached != null) {
+			cancel();
+			show(cached, bucket, true);
+			return;
+		}
+
+		Long nearest = findNearestCached(bucket);
+		if (nearest != null && nearest != shownBucket) {
+			Bitmap preview = cache.get(nearest);
+			if (preview != null) {
+				show(preview, nearest, false);
+			}
+		}
+
+		if (pending != null && pending.bucket == bucket) {
+			// Already on its way
+			return;
+		}
+		cancel();
+		pending = new Load(bucket, (float) (bucket * (double) bucketSize));
+		pending.future = getExecutor().submit(pending);
+	}
+
+	/**
+	 * Cancels the pending load, if any. Previews already cached stay cached.
+	 */
+	public void cancel() {
+		if (pending != null) {
+			pending.signal.cancel();
+			pending.future.cancel(false);
+			pending = null;
+		}
+	}
+
+	/**
+	 * Cancels the pending load and forgets what was shown, so the next request shows a
+	 * preview again.
+	 */
+	public void reset() {
+		cancel();
+		shownBucket = Long.MIN_VALUE;
+		shownExact = false;
+	}
+
+	public void clearCache() {
+		cache.evictAll();
+		cachedBuckets.clear();
+	}
+
+	private Long findNearestCached(long bucket) {
+		Long below = cachedBuckets.floor(bucket);
+		Long above = cachedBuckets.ceiling(bucket);
+		if (below == null) {
+			return above;
+		}
+		if (above == null) {
+			return below;
+		}
+		return bucket - below <= above - bucket ? below : above;
+	}
+
+	private void show(Bitmap preview, long bucket, boolean exact) {
+		shownBucket = bucket;
+		shownExact = exact;
+		callback.onPreview(preview, exact);
+	}
+
+	private void onLoaded(Load load, Bitmap preview) {
+		if (preview != null) {
+			// Added first: a preview larger than the whole cache is evicted by put() itself,
+			// and entryRemoved() must then find its bucket to forget it
+			cachedBuckets.add(load.bucket);
+			cache.put(load.bucket, preview);
+		}
+		if (load == pending) {
+			pending = null;
+			if (preview != null) {
+				show(preview, load.bucket, true);
+			}
+		}
+	}
+
+	private class Load implements Runnable {
+		final long bucket;
+		final float value;
+		final CancellationSignal signal = new CancellationSignal();
+		Future<?> future;
+
+		Load(long bucket, float value) {
+			this.bucket = bucket;
+			this.value = value;
+		}
+
+		@Override
+		public void run() {
+			if (signal.isCanceled()) {
+				return;
+			}
+			final Bitmap preview;
+			try {
+				preview = provider.loadPreview(value, signal);
+			}
+			catch (OperationCanceledException e) {
+				return;
+			}
+			sMainHandler.post(new Runnable() {
+				@Override
+				public void run() {
+					onLoaded(Load.this, preview);
+				}
+			});
+		}
+	}
+}
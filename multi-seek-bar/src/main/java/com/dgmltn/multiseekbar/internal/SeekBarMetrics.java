@@ -0,0 +1,175 @@
+package com.dgmltn.multiseekbar.internal;
+
+/**
+ * Timings and counters collected by a bar while metrics are enabled. See
+ * {@link AbsMultiSeekBar#setMetricsEnabled(boolean)}.
+ * <p>
+ * The bar records into its own instance; clients read a consistent copy with
+ * {@link AbsMultiSeekBar#getMetrics(SeekBarMetrics)}, which can reuse the same target
+ * instance every time, for export to their own telemetry.
+ */
+public final class SeekBarMetrics {
+
+	/**
+	 * A fixed-size histogram of durations. Bucket {@code i} holds durations shorter than
+	 * {@link #getBucketUpperBoundNanos(int)}, and each bucket is twice as wide as the one
+	 * before it, from 16µs up to about two minutes. Recording never allocates.
+	 */
+	public static final class Histogram {
+
+		public static final int BUCKET_COUNT = 24;
+
+		// The first bucket is 2^14 ns, about 16µs, wide
+		private static final int FIRST_BUCKET_SHIFT = 14;
+
+		private final long[] buckets = new long[BUCKET_COUNT];
+		private long count;
+		private long totalNanos;
+		private long maxNanos;
+
+		public void record(long nanos) {
+			if (nanos < 0) {
+				nanos = 0;
+			}
+			int i = 64 - Long.numberOfLeadingZeros(nanos >> FIRST_BUCKET_SHIFT);
+			buckets[Math.min(i, BUCKET_COUNT - 1)]++;
+			count++;
+			totalNanos += nanos;
+			maxNanos = Math.max(maxNanos, nanos);
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public long getTotalNanos() {
+			return totalNanos;
+		}
+
+		public long getMeanNanos() {
+			return count == 0 ? 0 : totalNanos / count;
+		}
+
+		public long getMaxNanos() {
+			return maxNanos;
+		}
+
+		public long getBucketCount(int bucket) {
+			return buckets[bucket];
+		}
+
+		public static long getBucketUpperBoundNanos(int bucket) {
+			return 1L << (FIRST_BUCKET_SHIFT + bucket);
+		}
+
+		/**
+		 * @param fraction between 0 and 1, e.g. 0.99 for the 99th percentile
+		 * @return an upper bound of the given percentile: the upper bound of the bucket it
+		 * falls in, or the maximum if that is smaller
+		 */
+		public long getPercentileNanos(float fraction) {
+			if (count == 0) {
+				return 0;
+			}
+			long rank = (long) Math.ceil(Math.max(0f, Math.min(1f, fraction)) * count);
+			long seen = 0;
+			for (int i = 0; i < BUCKET_COUNT; i++) {
+				seen += buckets[i];
+				if (seen >= rank && seen > 0) {
+					return Math.min(maxNanos, getBucketUpperBoundNanos(i));
+				}
+			}
+			return maxNanos;
+		}
+
+		public void set(Histogram other) {
+			System.arraycopy(other.buckets, 0, buckets, 0, BUCKET_COUNT);
+			count = other.count;
+			totalNanos = other.totalNanos;
+			maxNanos = other.maxNanos;
+		}
+
+		public void reset() {
+			for (int i = 0; i < BUCKET_COUNT; i++) {
+				buckets[i] = 0;
+			}
+			count = 0;
+			totalNanos = 0;
+			maxNanos = 0;
+		}
+	}
+
+	/**
+	 * Time spent in the whole of onDraw.
+	 */
+	public final Histogram draw = new Histogram();
+	/**
+	 * Time spent drawing the off track. Only recorded when the track is actually drawn,
+	 * not when a cached track is replayed.
+	 */
+	public final Histogram drawBar = new Histogram();
+	/**
+	 * Time spent drawing the ticks. Like {@link #drawBar}, only recorded on a real redraw.
+	 */
+	public final Histogram drawTicks = new Histogram();
+	/**
+	 * Time spent building and drawing the highlighted ranges.
+	 */
+	public final Histogram drawConnectingLines = new Histogram();
+	/**
+	 * Time spent in onLayout.
+	 */
+	public final Histogram layout = new Histogram();
+	/**
+	 * Time from the event time of the first ACTION_MOVE applied in a frame to the end of the
+	 * onDraw that shows it. Event times have millisecond resolution.
+	 */
+	public final Histogram touchLatency = new Histogram();
+
+	private long invalidations;
+	private long valueChanges;
+
+	/**
+	 * The number of times the bar was invalidated.
+	 */
+	public long getInvalidationCount() {
+		return invalidations;
+	}
+
+	/**
+	 * The number of thumb value changes, virtual thumbs included.
+	 */
+	public long getValueChangeCount() {
+		return valueChanges;
+	}
+
+	void countInvalidation() {
+		invalidations++;
+	}
+
+	void countValueChange() {
+		valueChanges++;
+	}
+
+	public void set(SeekBarMetrics other) {
+		draw.set(other.draw);
+		drawBar.set(other.drawBar);
+		drawTicks.set(other.drawTicks);
+		drawConnectingLines.set(other.drawConnectingLines);
+		layout.set(other.layout);
+		touchLatency.set(other.touchLatency);
+		invalidations = other.invalidations;
+		valueChanges = other.valueChanges;
+	}
+
+	public void reset() {
+		draw.reset();
+		drawBar.reset();
+		drawTicks.reset();
+		drawConnectingLines.reset();
+		layout.reset();
+		touchLatency.reset();
+		invalidations = 0;
+		valueChanges = 0;
+	}
+}
@@ -0,0 +1,153 @@
+package com.dgmltn.multiseekbar.internal;
+
+/**
+ * A {@link ThumbHitIndex} that keeps thumbs sorted by value. Suitable for bars where the
+ * on-screen distance from a touch point to a thumb grows with the thumb's value distance
+ * from the touch's projection onto the bar (lines and arcs).
+ * <p>
+ * A query binary searches the projected value and then walks outward in both directions,
+ * stopping as soon as thumbs get farther away than the touch radius or the best match.
+ * <p>
+ * On a closed bar, like an arc sweeping a full turn, the lowest and highest values meet on
+ * screen, so the walks wrap around: past the highest value they go on from the lowest, and
+ * the other way around.
+ */
+public class SortedThumbIndex extends ThumbHitIndex {
+
+	private final boolean mClosed;
+
+	// Thumb ids ordered by value, and the position of each id within mOrder
+	private int[] mOrder = new int[0];
+	private int[] mRank = new int[0];
+
+	public SortedThumbIndex() {
+		this(false);
+	}
+
+	/**
+	 * @param closed true if the ends of the bar may meet on screen
+	 */
+	public SortedThumbIndex(boolean closed) {
+		mClosed = closed;
+	}
+
+	@Override
+	protected void onCapacityChanged(int capacity) {
+		mOrder = new int[capacity];
+		mRank = new int[capacity];
+	}
+
+	@Override
+	protected void onRebuild() {
+		for (int i = 0; i < mCount; i++) {
+			mOrder[i] = i;
+		}
+		heapSort();
+		for (int i = 0; i < mCount; i++) {
+			mRank[mOrder[i]] = i;
+		}
+	}
+
+	@Override
+	protected void onUpdate(int id, float oldValue, float oldX, float oldY) {
+		float value = mValues[id];
+		int pos = mRank[id];
+		while (pos > 0 && mValues[mOrder[pos - 1]] > value) {
+			mOrder[pos] = mOrder[pos - 1];
+			mRank[mOrder[pos]] = pos;
+			pos--;
+		}
+		while (pos < mCount - 1 && mValues[mOrder[pos + 1]] < value) {
+			mOrder[pos] = mOrder[pos + 1];
+			mRank[mOrder[pos]] = pos;
+			pos++;
+		}
+		mOrder[pos] = id;
+		mRank[id] = pos;
+	}
+
+	@Override
+	protected int query(float x, float y, float value, float radius2, Filter filter) {
+		// First position whose value is >= the projected value
+		int lo = 0;
+		int hi = mCount;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (mValues[mOrder[mid]] < value) {
+				lo = mid + 1;
+			}
+			else {
+				hi = mid;
+			}
+		}
+
+		int best = -1;
+		float dmin = radius2;
+
+		// Up from lo, then down from lo - 1; a closed bar wraps around, visiting each thumb once
+		int upSteps = mClosed ? mCount : mCount - lo;
+		int visited = 0;
+		for (; visited < upSteps; visited++) {
+			int id = mOrder[(lo + visited) % mCount];
+			float d = distance2(id, x, y);
+			if (d > dmin) {
+				break;
+			}
+			// On ties, prefer the lowest id, like a linear scan would
+			if ((d < dmin || best == -1 || id < best) && filter.isHittable(id)) {
+				best = id;
+				dmin = d;
+			}
+		}
+
+		int downSteps = mClosed ? mCount - visited : lo;
+		for (int k = 1; k <= downSteps; k++) {
+			int id = mOrder[(lo - k + mCount) % mCount];
+			float d = distance2(id, x, y);
+			if (d > dmin) {
+				break;
+			}
+			// On ties, prefer the lowest id, like a linear scan would
+			if ((d < dmin || best == -1 || id < best) && filter.isHittable(id)) {
+				best = id;
+				dmin = d;
+			}
+		}
+
+		return best;
+	}
+
+	private void heapSort() {
+		int n = mCount;
+		for (int i = n / 2 - 1; i >= 0; i--) {
+			siftDown(i, n);
+		}
+		for (int end = n - 1; end > 0; end--) {
+			swap(0, end);
+			siftDown(0, end);
+		}
+	}
+
+	private void siftDown(int root, int n) {
+		while (true) {
+			int child = 2 * root + 1;
+			if (child >= n) {
+				return;
+			}
+			if (child + 1 < n && mValues[mOrder[child + 1]] > mValues[mOrder[child]]) {
+				child++;
+			}
+			if (mValues[mOrder[root]] >= mValues[mOrder[child]]) {
+				return;
+			}
+			swap(root, child);
+			root = child;
+		}
+	}
+
+	private void swap(int i, int j) {
+		int t = mOrder[i];
+		mOrder[i] = mOrder[j];
+		mOrder[j] = t;
+	}
+}
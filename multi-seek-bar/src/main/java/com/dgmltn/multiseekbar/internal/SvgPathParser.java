@@ -0,0 +1,486 @@
+package com.dgmltn.multiseekbar.internal;
+
+import android.graphics.Path;
+
+/**
+ * Streams the "d" attribute of an SVG path element into an {@link Path}, in a single pass over
+ * the characters, without allocating.
+ * <p>
+ * The whole path grammar is supported: M, L, H, V, C, S, Q, T, A and Z, in absolute and
+ * relative form, with implicit command repeats, and numbers in any form SVG allows
+ * ({@code -.5e-3}, {@code 1.5.5} as two numbers, arc flags without separators).
+ * Elliptical arcs are converted to cubic Béziers, at most a quarter turn each.
+ * <p>
+ * Instances keep their parsing state in fields and are not thread safe; reuse one per
+ * thread.
+ */
+public class SvgPathParser {
+
+	/**
+	 * Receives the parsed path, with every command made absolute. Arcs arrive as cubics.
+	 */
+	public interface Sink {
+		void moveTo(float x, float y);
+
+		void lineTo(float x, float y);
+
+		void quadTo(float x1, float y1, float x2, float y2);
+
+		void cubicTo(float x1, float y1, float x2, float y2, float x3, float y3);
+
+		void close();
+	}
+
+	private static final class PathSink implements Sink {
+		Path path;
+
+		@Override
+		public void moveTo(float x, float y) {
+			path.moveTo(x, y);
+		}
+
+		@Override
+		public void lineTo(float x, float y) {
+			path.lineTo(x, y);
+		}
+
+		@Override
+		public void quadTo(float x1, float y1, float x2, float y2) {
+			path.quadTo(x1, y1, x2, y2);
+		}
+
+		@Override
+		public void cubicTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+			path.cubicTo(x1, y1, x2, y2, x3, y3);
+		}
+
+		@Override
+		public void close() {
+			path.close();
+		}
+	}
+
+	private final PathSink pathSink = new PathSink();
+
+	// Powers of ten that are exact as doubles
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+		1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
+	private static final long MAX_MANTISSA = 100000000000000000L;
+
+	private CharSequence data;
+	private int pos;
+	private int length;
+
+	// Current point, start of the current subpath, and the last control point (for S and T)
+	private float x, y;
+	private float startX, startY;
+	private float controlX, controlY;
+
+	/**
+	 * Appends the path described by {@code data} to {@code path}.
+	 *
+	 * @throws IllegalArgumentException if {@code data} is not a valid path
+	 */
+	public void parse(CharSequence data, Path path) {
+		pathSink.path = path;
+		try {
+			parse(data, pathSink);
+		}
+		finally {
+			pathSink.path = null;
+		}
+	}
+
+	/**
+	 * Sends the path described by {@code data} to {@code sink}, as absolute commands.
+	 *
+	 * @throws IllegalArgumentException if {@code data} is not a valid path
+	 */
+	public void parse(CharSequence data, Sink sink) {
+		this.data = data;
+		this.pos = 0;
+		this.length = data.length();
+		x = y = startX = startY = controlX = controlY = 0f;
+
+		char previous = ' ';
+		char command = ' ';
+		while (true) {
+			skipSeparators();
+			if (pos >= length) {
+				break;
+			}
+
+			char c = data.charAt(pos);
+			if (isCommand(c)) {
+				pos++;
+				command = c;
+			}
+			else if (command == ' ' || command == 'Z' || command == 'z' || !isNumberStart(c)) {
+				throw error("unexpected '" + c + "'");
+			}
+			else if (command == 'M') {
+				// Coordinates following a moveto are implicit linetos
+				command = 'L';
+			}
+			else if (command == 'm') {
+				command = 'l';
+			}
+
+			execute(command, previous, sink);
+			previous = command;
+		}
+
+		this.data = null;
+	}
+
+	private void execute(char command, char previous, Sink sink) {
+		boolean relative = Character.isLowerCase(command);
+		float ox = relative ? x : 0f;
+		float oy = relative ? y : 0f;
+
+		switch (Character.toUpperCase(command)) {
+		case 'M':
+			x = startX = ox + readNumber();
+			y = startY = oy + readNumber();
+			sink.moveTo(x, y);
+			controlX = x;
+			controlY = y;
+			break;
+
+		case 'L':
+			lineTo(sink, ox + readNumber(), oy + readNumber());
+			break;
+
+		case 'H':
+			lineTo(sink, ox + readNumber(), y);
+			break;
+
+		case 'V':
+			lineTo(sink, x, oy + readNumber());
+			break;
+
+		case 'C': {
+			float x1 = ox + readNumber();
+			float y1 = oy + readNumber();
+			float x2 = ox + readNumber();
+			float y2 = oy + readNumber();
+			cubicTo(sink, x1, y1, x2, y2, ox + readNumber(), oy + readNumber());
+			break;
+		}
+
+		case 'S': {
+			boolean smooth = isOneOf(previous, 'C', 'S');
+			float x1 = smooth ? 2 * x - controlX : x;
+			float y1 = smooth ? 2 * y - controlY : y;
+			float x2 = ox + readNumber();
+			float y2 = oy + readNumber();
+			cubicTo(sink, x1, y1, x2, y2, ox + readNumber(), oy + readNumber());
+			break;
+		}
+
+		case 'Q': {
+			float x1 = ox + readNumber();
+			float y1 = oy + readNumber();
+			quadTo(sink, x1, y1, ox + readNumber(), oy + readNumber());
+			break;
+		}
+
+		case 'T': {
+			boolean smooth = isOneOf(previous, 'Q', 'T');
+			float x1 = smooth ? 2 * x - controlX : x;
+			float y1 = smooth ? 2 * y - controlY : y;
+			quadTo(sink, x1, y1, ox + readNumber(), oy + readNumber());
+			break;
+		}
+
+		case 'A': {
+			float rx = readNumber();
+			float ry = readNumber();
+			float rotation = readNumber();
+			boolean largeArc = readFlag();
+			boolean sweep = readFlag();
+			arcTo(sink, rx, ry, rotation, largeArc, sweep, ox + readNumber(), oy + readNumber());
+			break;
+		}
+
+		case 'Z':
+			sink.close();
+			x = controlX = startX;
+			y = controlY = startY;
+			break;
+		}
+	}
+
+	private void lineTo(Sink sink, float x, float y) {
+		sink.lineTo(x, y);
+		this.x = controlX = x;
+		this.y = controlY = y;
+	}
+
+	private void cubicTo(Sink sink, float x1, float y1, float x2, float y2, float x, float y) {
+		sink.cubicTo(x1, y1, x2, y2, x, y);
+		controlX = x2;
+		controlY = y2;
+		this.x = x;
+		this.y = y;
+	}
+
+	private void quadTo(Sink sink, float x1, float y1, float x, float y) {
+		sink.quadTo(x1, y1, x, y);
+		controlX = x1;
+		controlY = y1;
+		this.x = x;
+		this.y = y;
+	}
+
+	/**
+	 * Appends an SVG elliptical arc as cubic Béziers, following the endpoint to center
+	 * conversion of the SVG specification (appendix F.6).
+	 */
+	private void arcTo(Sink sink, float rx, float ry, float rotationDegrees,
+		boolean largeArc, boolean sweep, float x, float y) {
+
+		double x0 = this.x;
+		double y0 = this.y;
+		if (x0 == x && y0 == y) {
+			return;
+		}
+		if (rx == 0f || ry == 0f) {
+			lineTo(sink, x, y);
+			return;
+		}
+
+		double a = Math.abs(rx);
+		double b = Math.abs(ry);
+		double phi = Math.toRadians(rotationDegrees);
+		double cos = Math.cos(phi);
+		double sin = Math.sin(phi);
+
+		// The midpoint between the ends, in the ellipse's own axes
+		double dx = (x0 - x) / 2;
+		double dy = (y0 - y) / 2;
+		double x1 = cos * dx + sin * dy;
+		double y1 = -sin * dx + cos * dy;
+
+		// Radii too small to reach are scaled up just enough
+		double lambda = (x1 * x1) / (a * a) + (y1 * y1) / (b * b);
+		if (lambda > 1) {
+			double s = Math.sqrt(lambda);
+			a *= s;
+			b *= s;
+		}
+
+		double a2 = a * a;
+		double b2 = b * b;
+		double num = a2 * b2 - a2 * y1 * y1 - b2 * x1 * x1;
+		double den = a2 * y1 * y1 + b2 * x1 * x1;
+		double coef = den == 0 ? 0 : Math.sqrt(Math.max(0, num / den));
+		if (largeArc == sweep) {
+			coef = -coef;
+		}
+		double cx1 = coef * a * y1 / b;
+		double cy1 = -coef * b * x1 / a;
+		double cx = cos * cx1 - sin * cy1 + (x0 + x) / 2;
+		double cy = sin * cx1 + cos * cy1 + (y0 + y) / 2;
+
+		double ux = (x1 - cx1) / a;
+		double uy = (y1 - cy1) / b;
+		double vx = (-x1 - cx1) / a;
+		double vy = (-y1 - cy1) / b;
+		double theta = Math.atan2(uy, ux);
+		double delta = Math.atan2(ux * vy - uy * vx, ux * vx + uy * vy);
+		if (!sweep && delta > 0) {
+			delta -= 2 * Math.PI;
+		}
+		else if (sweep && delta < 0) {
+			delta += 2 * Math.PI;
+		}
+
+		int segments = Math.max(1, (int) Math.ceil(Math.abs(delta) / (Math.PI / 2) - 1e-7));
+		double step = delta / segments;
+		double t = 4.0 / 3.0 * Math.tan(step / 4);
+
+		double cos1 = Math.cos(theta);
+		double sin1 = Math.sin(theta);
+		for (int i = 0; i < segments; i++) {
+			double theta2 = theta + step;
+			double cos2 = Math.cos(theta2);
+			double sin2 = Math.sin(theta2);
+
+			// Control points on the unit circle, then mapped onto the ellipse
+			double e1x = cos1 - t * sin1;
+			double e1y = sin1 + t * cos1;
+			double e2x = cos2 + t * sin2;
+			double e2y = sin2 - t * cos2;
+
+			float px;
+			float py;
+			if (i == segments - 1) {
+				// Land exactly on the requested end point
+				px = x;
+				py = y;
+			}
+			else {
+				px = (float) (cx + a * cos * cos2 - b * sin * sin2);
+				py = (float) (cy + a * sin * cos2 + b * cos * sin2);
+			}
+			sink.cubicTo(
+				(float) (cx + a * cos * e1x - b * sin * e1y),
+				(float) (cy + a * sin * e1x + b * cos * e1y),
+				(float) (cx + a * cos * e2x - b * sin * e2y),
+				(float) (cy + a * sin * e2x + b * cos * e2y),
+				px, py);
+
+			theta = theta2;
+			cos1 = cos2;
+			sin1 = sin2;
+		}
+
+		this.x = controlX = x;
+		this.y = controlY = y;
+	}
+
+	/////////////////////////////////////////////////////////////////////////
+	// Tokenizer
+	/////////////////////////////////////////////////////////////////////////
+
+	private void skipSeparators() {
+		while (pos < length) {
+			char c = data.charAt(pos);
+			if (c != ' ' && c != ',' && c != '\t' && c != '\n' && c != '\r' && c != '\f') {
+				return;
+			}
+			pos++;
+		}
+	}
+
+	private float readNumber() {
+		skipSeparators();
+		if (pos >= length) {
+			throw error("number expected");
+		}
+
+		boolean negative = false;
+		char c = data.charAt(pos);
+		if (c == '-' || c == '+') {
+			negative = c == '-';
+			pos++;
+		}
+
+		long mantissa = 0;
+		int exponent = 0;
+		boolean digits = false;
+		while (pos < length && isDigit(c = data.charAt(pos))) {
+			if (mantissa < MAX_MANTISSA) {
+				mantissa = mantissa * 10 + (c - '0');
+			}
+			else {
+				exponent++;
+			}
+			digits = true;
+			pos++;
+		}
+		if (pos < length && data.charAt(pos) == '.') {
+			pos++;
+			while (pos < length && isDigit(c = data.charAt(pos))) {
+				if (mantissa < MAX_MANTISSA) {
+					mantissa = mantissa * 10 + (c - '0');
+					exponent--;
+				}
+				digits = true;
+				pos++;
+			}
+		}
+		if (!digits) {
+			throw error("number expected");
+		}
+
+		if (pos < length && (data.charAt(pos) == 'e' || data.charAt(pos) == 'E') && hasExponent(pos + 1)) {
+			pos++;
+			boolean negativeExponent = false;
+			c = data.charAt(pos);
+			if (c == '-' || c == '+') {
+				negativeExponent = c == '-';
+				pos++;
+			}
+			int e = 0;
+			while (pos < length && isDigit(c = data.charAt(pos))) {
+				if (e < 1000) {
+					e = e * 10 + (c - '0');
+				}
+				pos++;
+			}
+			exponent += negativeExponent ? -e : e;
+		}
+
+		double value = scale(mantissa, exponent);
+		return (float) (negative ? -value : value);
+	}
+
+	private boolean hasExponent(int i) {
+		if (i < length && (data.charAt(i) == '-' || data.charAt(i) == '+')) {
+			i++;
+		}
+		return i < length && isDigit(data.charAt(i));
+	}
+
+	private static double scale(long mantissa, int exponent) {
+		if (mantissa == 0 || exponent == 0) {
+			return mantissa;
+		}
+		if (exponent > 0) {
+			return exponent < POWERS_OF_TEN.length
+				? mantissa * POWERS_OF_TEN[exponent]
+				: mantissa * Math.pow(10, exponent);
+		}
+		return -exponent < POWERS_OF_TEN.length
+			? mantissa / POWERS_OF_TEN[-exponent]
+			: mantissa / Math.pow(10, -exponent);
+	}
+
+	/**
+	 * Reads an arc flag, which may be written without a separator before the next number.
+	 */
+	private boolean readFlag() {
+		skipSeparators();
+		if (pos < length) {
+			char c = data.charAt(pos);
+			if (c == '0' || c == '1') {
+				pos++;
+				return c == '1';
+			}
+		}
+		throw error("flag expected");
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private static boolean isNumberStart(char c) {
+		return isDigit(c) || c == '-' || c == '+' || c == '.';
+	}
+
+	private static boolean isCommand(char c) {
+		switch (c) {
+		case 'M': case 'm': case 'L': case 'l': case 'H': case 'h': case 'V': case 'v':
+		case 'C': case 'c': case 'S': case 's': case 'Q': case 'q': case 'T': case 't':
+		case 'A': case 'a': case 'Z': case 'z':
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	private static boolean isOneOf(char command, char a, char b) {
+		char c = Character.toUpperCase(command);
+		return c == a || c == b;
+	}
+
+	private IllegalArgumentException error(String message) {
+		return new IllegalArgumentException("bad path data at " + pos + ": " + message);
+	}
+}
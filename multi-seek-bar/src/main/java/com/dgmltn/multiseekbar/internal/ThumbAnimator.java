@@ -0,0 +1,415 @@
+package com.dgmltn.multiseekbar.internal;
+
+import android.view.Choreographer;
+
+import com.dgmltn.multiseekbar.ThumbView;
+
+/**
+ * Drives every moving thumb of a bar from a single Choreographer callback.
+ * <p>
+ * Each animation is either a spring pulling the value toward a target, or a decay that
+ * carries an initial velocity until friction stops it. Both are evaluated in closed form
+ * from the elapsed frame time, so they are stable at any frame rate. Animation state lives
+ * in parallel primitive arrays that are reused, so starting, retargeting or finishing an
+ * animation does not allocate once the arrays have grown to the peak number of concurrently
+ * moving thumbs. Values are kept in double precision, so ThumbViews on domains too long for
+ * a float to resolve, like a timeline, land exactly on their targets.
+ */
+public class ThumbAnimator implements Choreographer.FrameCallback {
+
+	/**
+	 * Receives the animated values. All the values of a frame are applied between
+	 * {@link #beginFrame()} and {@link #endFrame()}.
+	 */
+	public interface Host {
+		void beginFrame();
+
+		void setThumbValue(ThumbView thumb, double value);
+
+		void setVirtualThumbValue(int index, float value);
+
+		void endFrame();
+
+		/**
+		 * Called once the last running animation has finished, or has been cancelled or
+		 * ended.
+		 */
+		void onAnimationsFinished();
+
+		/**
+		 * The extent of the value range, used to decide when a value has come to rest.
+		 */
+		float getValueRange();
+	}
+
+	private static final int MODE_SPRING = 0;
+	private static final int MODE_DECAY = 1;
+
+	public static final float DEFAULT_STIFFNESS = 1500f;
+	public static final float DEFAULT_DAMPING_RATIO = 1f;
+	public static final float DEFAULT_FRICTION = 4f;
+
+	// Values closer than this fraction of the range are considered at rest
+	private static final float REST_VALUE_FRACTION = 1e-4f;
+	// Velocities slower than this fraction of the range per second are considered at rest
+	private static final float REST_VELOCITY_FRACTION = 1e-2f;
+
+	private static final float MAX_FRAME_SECONDS = 1f / 15f;
+	private static final float DEFAULT_FRAME_SECONDS = 1f / 60f;
+
+	private final Host host;
+
+	private float stiffness = DEFAULT_STIFFNESS;
+	private float dampingRatio = DEFAULT_DAMPING_RATIO;
+	private float friction = DEFAULT_FRICTION;
+
+	private int count = 0;
+	private ThumbView[] views = new ThumbView[0];
+	private int[] virtualIndices = new int[0];
+	private int[] modes = new int[0];
+	private double[] values = new double[0];
+	private double[] velocities = new double[0];
+	private double[] targets = new double[0];
+	private double[] mins = new double[0];
+	private double[] maxs = new double[0];
+	// Slots that finished or were cancelled during a frame, removed once the frame is over
+	private boolean[] dead = new boolean[0];
+
+	private boolean scheduled = false;
+	// Set while doFrame() walks the slots, which listeners of the values it applies may
+	// cancel: removing a slot then would move another one under the walk
+	private boolean inFrame = false;
+	private long lastFrameNanos = 0;
+
+	public ThumbAnimator(Host host) {
+		this.host = host;
+	}
+
+	/**
+	 * @param stiffness    spring stiffness, in 1/s²
+	 * @param dampingRatio 1 for a critically damped spring (no overshoot), less for bouncier
+	 *                     springs. Values above 1 are treated as 1.
+	 */
+	public void setSpring(float stiffness, float dampingRatio) {
+		this.stiffness = Math.max(1f, stiffness);
+		this.dampingRatio = Math.max(0.01f, Math.min(1f, dampingRatio));
+	}
+
+	/**
+	 * @param friction decay rate of fling velocities, in 1/s
+	 */
+	public void setFriction(float friction) {
+		this.friction = Math.max(0.01f, friction);
+	}
+
+	/**
+	 * Springs a ThumbView from {@code from} to {@code target}. If the thumb is already
+	 * animating, its current velocity is kept.
+	 */
+	public void springTo(ThumbView thumb, double from, double target) {
+		int i = obtain(thumb, -1, from);
+		modes[i] = MODE_SPRING;
+		targets[i] = target;
+		schedule();
+	}
+
+	/**
+	 * Springs a virtual thumb from {@code from} to {@code target}.
+	 */
+	public void springVirtualTo(int index, float from, float target) {
+		int i = obtain(null, index, from);
+		modes[i] = MODE_SPRING;
+		targets[i] = target;
+		schedule();
+	}
+
+	/**
+	 * Lets a ThumbView coast with {@code velocity} (values per second) until friction stops it,
+	 * or it reaches {@code min} or {@code max}.
+	 */
+	public void fling(ThumbView thumb, double from, float velocity, double min, double max) {
+		int i = obtain(thumb, -1, from);
+		startDecay(i, velocity, min, max);
+	}
+
+	/**
+	 * Lets a virtual thumb coast with {@code velocity} (values per second).
+	 */
+	public void flingVirtual(int index, float from, float velocity, float min, float max) {
+		int i = obtain(null, index, from);
+		startDecay(i, velocity, min, max);
+	}
+
+	public boolean isAnimating(ThumbView thumb) {
+		return find(thumb, -1) > -1;
+	}
+
+	public boolean isAnimatingVirtual(int index) {
+		return find(null, index) > -1;
+	}
+
+	public boolean isRunning() {
+		return count > 0;
+	}
+
+	/**
+	 * Stops animating a thumb, leaving it wherever it currently is. Like {@link #end()}, safe
+	 * to call from the listeners of the values a frame applies.
+	 */
+	public void cancel(ThumbView thumb) {
+		cancelSlot(find(thumb, -1));
+	}
+
+	public void cancelVirtual(int index) {
+		cancelSlot(find(null, index));
+	}
+
+	private void cancelSlot(int i) {
+		if (i == -1) {
+			return;
+		}
+		if (inFrame) {
+			// doFrame() removes it, and reports if it was the last
+			dead[i] = true;
+			return;
+		}
+		remove(i);
+		if (count == 0) {
+			host.onAnimationsFinished();
+		}
+	}
+
+	/**
+	 * Stops all animations, jumping springs to their targets.
+	 */
+	public void end() {
+		if (count == 0) {
+			return;
+		}
+		host.beginFrame();
+		for (int i = 0; i < count; i++) {
+			if (!dead[i] && modes[i] == MODE_SPRING) {
+				apply(i, targets[i]);
+			}
+		}
+		host.endFrame();
+		if (inFrame) {
+			for (int i = 0; i < count; i++) {
+				dead[i] = true;
+			}
+			return;
+		}
+		for (int i = count - 1; i >= 0; i--) {
+			remove(i);
+		}
+		host.onAnimationsFinished();
+	}
+
+	@Override
+	public void doFrame(long frameTimeNanos) {
+		scheduled = false;
+		float dt = lastFrameNanos == 0
+			? DEFAULT_FRAME_SECONDS
+			: Math.min(MAX_FRAME_SECONDS, (frameTimeNanos - lastFrameNanos) / 1e9f);
+		lastFrameNanos = frameTimeNanos;
+
+		float range = Math.max(1e-3f, host.getValueRange());
+		float restValue = range * REST_VALUE_FRACTION;
+		float restVelocity = range * REST_VELOCITY_FRACTION;
+
+		inFrame = true;
+		host.beginFrame();
+		for (int i = count - 1; i >= 0; i--) {
+			if (dead[i]) {
+				continue;
+			}
+			// Marked before applying, so that a listener restarting the thumb gets a new slot
+			dead[i] = modes[i] == MODE_SPRING
+				? stepSpring(i, dt, restValue, restVelocity)
+				: stepDecay(i, dt, restVelocity);
+			apply(i, values[i]);
+		}
+		host.endFrame();
+		inFrame = false;
+		for (int i = count - 1; i >= 0; i--) {
+			if (dead[i]) {
+				remove(i);
+			}
+		}
+
+		if (count > 0) {
+			schedule();
+		}
+		else {
+			lastFrameNanos = 0;
+			host.onAnimationsFinished();
+		}
+	}
+
+	private boolean stepSpring(int i, float dt, float restValue, float restVelocity) {
+		double omega = Math.sqrt(stiffness);
+		double x0 = values[i] - targets[i];
+		double v0 = velocities[i];
+		double x;
+		double v;
+
+		if (dampingRatio >= 1f) {
+			// Critically damped: x(t) = (x0 + (v0 + w x0) t) e^(-w t)
+			double decay = Math.exp(-omega * dt);
+			double c = v0 + omega * x0;
+			x = (x0 + c * dt) * decay;
+			v = (v0 - omega * c * dt) * decay;
+		}
+		else {
+			// Underdamped: oscillates around the target with frequency wd
+			double zeta = dampingRatio;
+			double wd = omega * Math.sqrt(1 - zeta * zeta);
+			double decay = Math.exp(-zeta * omega * dt);
+			double cos = Math.cos(wd * dt);
+			double sin = Math.sin(wd * dt);
+			double b = (v0 + zeta * omega * x0) / wd;
+			x = decay * (x0 * cos + b * sin);
+			v = decay * (v0 * cos - (x0 * wd + zeta * omega * b) * sin);
+		}
+
+		if (Math.abs(x) < restValue && Math.abs(v) < restVelocity) {
+			values[i] = targets[i];
+			velocities[i] = 0d;
+			return true;
+		}
+		values[i] = targets[i] + x;
+		velocities[i] = v;
+		return false;
+	}
+
+	private boolean stepDecay(int i, float dt, float restVelocity) {
+		// v(t) = v0 e^(-f t), x(t) = x0 + v0 / f (1 - e^(-f t))
+		double decay = Math.exp(-friction * dt);
+		double v0 = velocities[i];
+		double value = values[i] + v0 / friction * (1d - decay);
+		double v = v0 * decay;
+
+		if (value <= mins[i] || value >= maxs[i]) {
+			values[i] = Math.max(mins[i], Math.min(maxs[i], value));
+			velocities[i] = 0d;
+			return true;
+		}
+		values[i] = value;
+		velocities[i] = v;
+		return Math.abs(v) < restVelocity;
+	}
+
+	private void startDecay(int i, float velocity, double min, double max) {
+		modes[i] = MODE_DECAY;
+		velocities[i] = velocity;
+		mins[i] = min;
+		maxs[i] = max;
+		schedule();
+	}
+
+	private void apply(int i, double value) {
+		if (views[i] != null) {
+			host.setThumbValue(views[i], value);
+		}
+		else {
+			host.setVirtualThumbValue(virtualIndices[i], (float) value);
+		}
+	}
+
+	private void schedule() {
+		if (!scheduled) {
+			scheduled = true;
+			postFrameCallback();
+		}
+	}
+
+	// Overridden by tests, which run the frames themselves
+	void postFrameCallback() {
+		Choreographer.getInstance().postFrameCallback(this);
+	}
+
+	void removeFrameCallback() {
+		Choreographer.getInstance().removeFrameCallback(this);
+	}
+
+	private int find(ThumbView thumb, int virtualIndex) {
+		for (int i = 0; i < count; i++) {
+			if (dead[i]) {
+				continue;
+			}
+			if (thumb != null ? views[i] == thumb : (views[i] == null && virtualIndices[i] == virtualIndex)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the slot animating the given thumb, creating one if needed.
+	 */
+	private int obtain(ThumbView thumb, int virtualIndex, double from) {
+		int i = find(thumb, virtualIndex);
+		if (i > -1) {
+			return i;
+		}
+
+		if (count == views.length) {
+			grow(Math.max(4, count * 2));
+		}
+		i = count++;
+		views[i] = thumb;
+		virtualIndices[i] = virtualIndex;
+		values[i] = from;
+		velocities[i] = 0d;
+		dead[i] = false;
+		return i;
+	}
+
+	private void remove(int i) {
+		int last = --count;
+		views[i] = views[last];
+		virtualIndices[i] = virtualIndices[last];
+		modes[i] = modes[last];
+		values[i] = values[last];
+		velocities[i] = velocities[last];
+		targets[i] = targets[last];
+		mins[i] = mins[last];
+		maxs[i] = maxs[last];
+		dead[i] = dead[last];
+		views[last] = null;
+
+		if (count == 0 && scheduled) {
+			scheduled = false;
+			lastFrameNanos = 0;
+			removeFrameCallback();
+		}
+	}
+
+	private void grow(int capacity) {
+		ThumbView[] v = new ThumbView[capacity];
+		System.arraycopy(views, 0, v, 0, count);
+		views = v;
+		virtualIndices = copyOf(virtualIndices, capacity);
+		modes = copyOf(modes, capacity);
+		values = copyOf(values, capacity);
+		velocities = copyOf(velocities, capacity);
+		targets = copyOf(targets, capacity);
+		mins = copyOf(mins, capacity);
+		maxs = copyOf(maxs, capacity);
+		boolean[] d = new boolean[capacity];
+		System.arraycopy(dead, 0, d, 0, count);
+		dead = d;
+	}
+
+	private int[] copyOf(int[] a, int capacity) {
+		int[] b = new int[capacity];
+		System.arraycopy(a, 0, b, 0, count);
+		return b;
+	}
+
+	private double[] copyOf(double[] a, int capacity) {
+		double[] b = new double[capacity];
+		System.arraycopy(a, 0, b, 0, count);
+		return b;
+	}
+}
@@ -0,0 +1,113 @@
+package com.dgmltn.multiseekbar.internal;
+
+/**
+ * An index of thumb positions used to find the thumb nearest to a touch point without
+ * visiting every thumb on the bar. Thumbs are identified by a dense id (their child index);
+ * the index keeps a copy of each thumb's value and on-screen center so that queries never
+ * call back into the bar's geometry.
+ * <p>
+ * Queries and updates do not allocate. Storage only grows when the number of thumbs does.
+ */
+public abstract class ThumbHitIndex {
+
+	/**
+	 * Decides whether a given thumb may be picked by a query, e.g. because it is clickable.
+	 */
+	public interface Filter {
+		boolean isHittable(int id);
+	}
+
+	protected int mCount = 0;
+	protected float[] mValues = new float[0];
+	protected float[] mX = new float[0];
+	protected float[] mY = new float[0];
+
+	private float mLastDistance2 = Float.MAX_VALUE;
+
+	/**
+	 * Starts a full rebuild of the index for {@code count} thumbs. Every id in
+	 * {@code [0, count)} must then be {@link #put}, followed by a call to {@link #end()}.
+	 */
+	public final void begin(int count) {
+		if (mValues.length < count) {
+			int capacity = Math.max(count, mValues.length * 2);
+			mValues = new float[capacity];
+			mX = new float[capacity];
+			mY = new float[capacity];
+			onCapacityChanged(capacity);
+		}
+		mCount = count;
+	}
+
+	public final void put(int id, float value, float x, float y) {
+		mValues[id] = value;
+		mX[id] = x;
+		mY[id] = y;
+	}
+
+	public final void end() {
+		onRebuild();
+	}
+
+	/**
+	 * Moves a single thumb that is already part of the index.
+	 */
+	public final void update(int id, float value, float x, float y) {
+		if (id < 0 || id >= mCount) {
+			return;
+		}
+		float oldValue = mValues[id];
+		float oldX = mX[id];
+		float oldY = mY[id];
+		put(id, value, x, y);
+		onUpdate(id, oldValue, oldX, oldY);
+	}
+
+	public final int size() {
+		return mCount;
+	}
+
+	/**
+	 * Finds the hittable thumb closest to (x, y), as long as it lies within {@code radius}.
+	 *
+	 * @param x      the touch x coordinate
+	 * @param y      the touch y coordinate
+	 * @param value  the bar value nearest to the touch point
+	 * @param radius the maximum distance from the touch point to a thumb's center
+	 * @param filter decides which thumbs may be returned
+	 * @return the id of the nearest thumb, or -1 if none is within radius
+	 */
+	public final int findNearest(float x, float y, float value, float radius, Filter filter) {
+		mLastDistance2 = Float.MAX_VALUE;
+		if (mCount == 0) {
+			return -1;
+		}
+		int id = query(x, y, value, radius * radius, filter);
+		if (id > -1) {
+			mLastDistance2 = distance2(id, x, y);
+		}
+		return id;
+	}
+
+	/**
+	 * The squared distance to the thumb returned by the last successful {@link #findNearest}.
+	 */
+	public final float getLastDistanceSquared() {
+		return mLastDistance2;
+	}
+
+	protected final float distance2(int id, float x, float y) {
+		float m = mX[id] - x;
+		float n = mY[id] - y;
+		return m * m + n * n;
+	}
+
+	protected void onCapacityChanged(int capacity) {
+	}
+
+	protected abstract void onRebuild();
+
+	protected abstract void onUpdate(int id, float oldValue, float oldX, float oldY);
+
+	protected abstract int query(float x, float y, float value, float radius2, Filter filter);
+}
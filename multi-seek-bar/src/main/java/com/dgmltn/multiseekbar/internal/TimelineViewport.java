@@ -0,0 +1,137 @@
+package com.dgmltn.multiseekbar.internal;
+
+/**
+ * The visible window of a timeline: a domain running from 0 to a {@code long} duration, in
+ * whatever units the timeline counts (milliseconds, frames...), of which only the part from
+ * start to end is shown. The window is kept in double precision, so zooming deep into a
+ * long domain keeps every unit apart.
+ */
+public class TimelineViewport {
+
+	private long duration = 0;
+	private double start = 0d;
+	private double end = 0d;
+	private double minSpan = 1d;
+
+	public long getDuration() {
+		return duration;
+	}
+
+	/**
+	 * Sets the domain to [0, {@code duration}] and shows all of it.
+	 */
+	public void setDuration(long duration) {
+		this.duration = Math.max(0L, duration);
+		start = 0d;
+		end = this.duration;
+	}
+
+	public double getStart() {
+		return start;
+	}
+
+	public double getEnd() {
+		return end;
+	}
+
+	public double getSpan() {
+		return end - start;
+	}
+
+	public double getMinSpan() {
+		return minSpan;
+	}
+
+	/**
+	 * Sets how far in the window can zoom: it never shows less than {@code span} units, or
+	 * the whole domain if it is shorter.
+	 */
+	public void setMinSpan(double span) {
+		minSpan = Math.max(0d, span);
+		setRange(start, end);
+	}
+
+	/**
+	 * Shows the domain from {@code start} to {@code end}, keeping the span within the
+	 * minimum span and the duration, and the window within the domain.
+	 *
+	 * @return true if the window moved
+	 */
+	public boolean setRange(double start, double end) {
+		double span = Math.max(Math.min(minSpan, duration), Math.min(duration, end - start));
+		double s = Math.max(0d, Math.min(duration - span, start));
+		if (s == this.start && s + span == this.end) {
+			return false;
+		}
+		this.start = s;
+		this.end = s + span;
+		return true;
+	}
+
+	/**
+	 * Scales the span by {@code factor} (below 1 zooms in), keeping {@code focus} at the
+	 * same place in the window.
+	 *
+	 * @return true if the window moved
+	 */
+	public boolean zoom(double factor, double focus) {
+		double span = getSpan();
+		if (span <= 0d || factor <= 0d) {
+			return false;
+		}
+		double f = (focus - start) / span;
+		double scaled = span * factor;
+		double s = focus - f * scaled;
+		return setRange(s, s + scaled);
+	}
+
+	/**
+	 * Moves the window by {@code delta} units, stopping at the ends of the domain.
+	 *
+	 * @return true if the window moved
+	 */
+	public boolean pan(double delta) {
+		return setRange(start + delta, end + delta);
+	}
+
+	/**
+	 * @return the position of {@code value} in the window: 0 at its start, 1 at its end
+	 */
+	public double toFraction(double value) {
+		double span = getSpan();
+		return span > 0d ? (value - start) / span : 0d;
+	}
+
+	/**
+	 * @return the value at {@code fraction} of the window
+	 */
+	public double fromFraction(double fraction) {
+		return start + fraction * getSpan();
+	}
+
+	public boolean contains(double value) {
+		return value >= start && value <= end;
+	}
+
+	/**
+	 * Returns the smallest multiple of {@code unit} from the 1, 2, 5, 10... sequence that is
+	 * at least {@code minStep}.
+	 */
+	public static long tickStep(double minStep, long unit) {
+		long mantissa = 1;
+		long scale = 1;
+		while ((double) unit * mantissa * scale < minStep && unit * mantissa * scale < Long.MAX_VALUE / 10) {
+			if (mantissa == 1) {
+				mantissa = 2;
+			}
+			else if (mantissa == 2) {
+				mantissa = 5;
+			}
+			else {
+				mantissa = 1;
+				scale *= 10;
+			}
+		}
+		return unit * mantissa * scale;
+	}
+}
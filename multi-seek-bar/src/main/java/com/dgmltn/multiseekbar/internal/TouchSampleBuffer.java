@@ -0,0 +1,98 @@
+package com.dgmltn.multiseekbar.internal;
+
+import android.view.MotionEvent;
+
+/**
+ * Accumulates the touch positions delivered between two frames, including the historical
+ * samples batched into each {@link MotionEvent}. Storage is reused from frame to frame and
+ * only grows when a frame sees more samples than any frame before it.
+ */
+public class TouchSampleBuffer {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private float[] xs = new float[INITIAL_CAPACITY];
+	private float[] ys = new float[INITIAL_CAPACITY];
+	private long[] times = new long[INITIAL_CAPACITY];
+	private int count = 0;
+
+	/**
+	 * Appends every historical sample of the event, followed by its current position.
+	 */
+	public void addAll(MotionEvent event) {
+		int history = event.getHistorySize();
+		ensureCapacity(count + history + 1);
+		for (int h = 0; h < history; h++) {
+			add(event.getHistoricalX(h), event.getHistoricalY(h), event.getHistoricalEventTime(h));
+		}
+		add(event.getX(), event.getY(), event.getEventTime());
+	}
+
+	public void add(float x, float y, long time) {
+		ensureCapacity(count + 1);
+		xs[count] = x;
+		ys[count] = y;
+		times[count] = time;
+		count++;
+	}
+
+	public void clear() {
+		count = 0;
+	}
+
+	public int size() {
+		return count;
+	}
+
+	public boolean isEmpty() {
+		return count == 0;
+	}
+
+	public float getX(int i) {
+		return xs[i];
+	}
+
+	public float getY(int i) {
+		return ys[i];
+	}
+
+	public long getTime(int i) {
+		return times[i];
+	}
+
+	/**
+	 * The event times of the buffered samples, in {@link android.os.SystemClock#uptimeMillis()}
+	 * time base. Only the first {@link #size()} entries are valid.
+	 */
+	public long[] getTimes() {
+		return times;
+	}
+
+	public float getLastX() {
+		return xs[count - 1];
+	}
+
+	public float getLastY() {
+		return ys[count - 1];
+	}
+
+	public long getLastTime() {
+		return times[count - 1];
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity <= xs.length) {
+			return;
+		}
+		int size = Math.max(capacity, xs.length * 2);
+		float[] nx = new float[size];
+		float[] ny = new float[size];
+		long[] nt = new long[size];
+		System.arraycopy(xs, 0, nx, 0, count);
+		System.arraycopy(ys, 0, ny, 0, count);
+		System.arraycopy(times, 0, nt, 0, count);
+		xs = nx;
+		ys = ny;
+		times = nt;
+	}
+}
@@ -0,0 +1,89 @@
+package com.dgmltn.multiseekbar.internal;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Picture;
+import android.os.Build;
+
+/**
+ * A cache for the parts of a bar that don't change while thumbs move (the off track and
+ * the ticks). The content is recorded once and replayed on every frame until it is
+ * invalidated.
+ * <p>
+ * On Marshmallow and up the content is recorded into a {@link Picture}, which hardware
+ * accelerated canvases replay as a display list. Older platforms can't draw pictures into
+ * a hardware canvas, so the content is rendered into a bitmap instead.
+ */
+public class TrackLayer {
+
+	private final boolean usePicture = Build.VERSION.SDK_INT >= Build.VERSION_CODES.M;
+
+	private Picture picture;
+	private Bitmap bitmap;
+	private Canvas bitmapCanvas;
+	private boolean valid = false;
+
+	public boolean isValid() {
+		return valid;
+	}
+
+	public void invalidate() {
+		valid = false;
+	}
+
+	/**
+	 * Starts recording new content. Everything drawn into the returned canvas until
+	 * {@link #endRecording()} will be replayed by {@link #draw(Canvas)}.
+	 */
+	public Canvas beginRecording(int width, int height) {
+		width = Math.max(1, width);
+		height = Math.max(1, height);
+
+		if (usePicture) {
+			if (picture == null) {
+				picture = new Picture();
+			}
+			return picture.beginRecording(width, height);
+		}
+
+		if (bitmap == null || bitmap.getWidth() != width || bitmap.getHeight() != height) {
+			release();
+			bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+			bitmapCanvas = new Canvas(bitmap);
+		}
+		else {
+			bitmap.eraseColor(Color.TRANSPARENT);
+		}
+		return bitmapCanvas;
+	}
+
+	public void endRecording() {
+		if (usePicture) {
+			picture.endRecording();
+		}
+		valid = true;
+	}
+
+	public void draw(Canvas canvas) {
+		if (usePicture) {
+			canvas.drawPicture(picture);
+		}
+		else {
+			canvas.drawBitmap(bitmap, 0f, 0f, null);
+		}
+	}
+
+	/**
+	 * Frees the backing storage. The next frame will record the content again.
+	 */
+	public void release() {
+		valid = false;
+		if (bitmap != null) {
+			bitmap.recycle();
+			bitmap = null;
+			bitmapCanvas = null;
+		}
+		picture = null;
+	}
+}
@@ -0,0 +1,100 @@
+package com.dgmltn.multiseekbar.internal;
+
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
+
+/**
+ * Storage for lightweight thumbs that are not Views: a value and an on-screen center per
+ * thumb, held in primitive arrays, all drawn with one shared drawable.
+ */
+class VirtualThumbs {
+
+	private static final int[] STATE_NORMAL = new int[] { android.R.attr.state_enabled };
+	private static final int[] STATE_PRESSED = new int[] { android.R.attr.state_enabled, android.R.attr.state_pressed };
+
+	private float[] values = new float[0];
+
+	// Thumb centers as packed (x, y) pairs
+	private float[] points = new float[0];
+
+	private int count = 0;
+
+	Drawable drawable;
+	boolean clickable = true;
+	int pressed = -1;
+
+	final ThumbHitIndex index;
+
+	VirtualThumbs(ThumbHitIndex index) {
+		this.index = index;
+	}
+
+	int size() {
+		return count;
+	}
+
+	/**
+	 * Changes the number of thumbs. Existing values are kept, new thumbs start at 0.
+	 */
+	void resize(int n) {
+		if (values.length < n) {
+			float[] v = new float[n];
+			float[] p = new float[n * 2];
+			System.arraycopy(values, 0, v, 0, count);
+			System.arraycopy(points, 0, p, 0, count * 2);
+			values = v;
+			points = p;
+		}
+		for (int i = count; i < n; i++) {
+			values[i] = 0f;
+		}
+		count = n;
+		if (pressed >= n) {
+			pressed = -1;
+		}
+	}
+
+	float getValue(int i) {
+		return values[i];
+	}
+
+	void setValue(int i, float value) {
+		values[i] = value;
+	}
+
+	void setPoint(int i, float x, float y) {
+		points[i * 2] = x;
+		points[i * 2 + 1] = y;
+	}
+
+	void draw(Canvas canvas) {
+		if (drawable == null || count == 0) {
+			return;
+		}
+
+		int w = drawable.getIntrinsicWidth();
+		int h = drawable.getIntrinsicHeight();
+		for (int i = 0; i < count; i++) {
+			if (i == pressed) {
+				continue;
+			}
+			drawAt(canvas, i, w, h);
+		}
+
+		// The pressed thumb is drawn last, on top of the others
+		if (pressed > -1) {
+			drawable.setState(STATE_PRESSED);
+			drawable.jumpToCurrentState();
+			drawAt(canvas, pressed, w, h);
+			drawable.setState(STATE_NORMAL);
+			drawable.jumpToCurrentState();
+		}
+	}
+
+	private void drawAt(Canvas canvas, int i, int w, int h) {
+		int l = (int) (points[i * 2] - w / 2f);
+		int t = (int) (points[i * 2 + 1] - h / 2f);
+		drawable.setBounds(l, t, l + w, t + h);
+		drawable.draw(canvas);
+	}
+}
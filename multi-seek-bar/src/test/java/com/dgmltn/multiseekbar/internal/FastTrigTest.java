@@ -0,0 +1,121 @@
+package com.dgmltn.multiseekbar.internal;
+
+import android.graphics.PointF;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the error bounds that {@link FastTrig} publishes against {@link Math}.
+ */
+public class FastTrigTest {
+
+	private static final float[] RADII = { 1e-3f, 1f, 37f, 500f, 1e6f };
+
+	@Test
+	public void atan2DegreesWithinBoundAroundTheCircle() {
+		for (float radius : RADII) {
+			for (int i = 0; i <= 360000; i++) {
+				double angle = Math.toRadians(i / 1000d);
+				assertAtan2((float) (radius * Math.sin(angle)), (float) (radius * Math.cos(angle)));
+			}
+		}
+	}
+
+	@Test
+	public void atan2DegreesWithinBoundAtBoundaries() {
+		float[] coords = { 0f, -0f, 1f, -1f, Float.MIN_VALUE, -Float.MIN_VALUE, 1e-30f, 1e30f, -1e30f, Float.MAX_VALUE };
+		for (float y : coords) {
+			for (float x : coords) {
+				if (Math.abs(x) == 0f && Math.abs(y) == 0f) {
+					continue;
+				}
+				assertAtan2(y, x);
+			}
+		}
+		// The octant boundaries, where the polynomial switches between atan(y/x) and atan(x/y)
+		for (float v : new float[] { 1f, 1e-20f, 3e20f }) {
+			assertAtan2(v, v);
+			assertAtan2(v, -v);
+			assertAtan2(-v, v);
+			assertAtan2(-v, -v);
+			assertAtan2(Math.nextUp(v), v);
+			assertAtan2(v, Math.nextUp(v));
+		}
+	}
+
+	@Test
+	public void atan2OfOriginIsZero() {
+		assertEquals(0f, FastTrig.atan2Degrees(0f, 0f), 0f);
+	}
+
+	private static void assertAtan2(float y, float x) {
+		double expected = Math.toDegrees(Math.atan2(y, x));
+		float actual = FastTrig.atan2Degrees(y, x);
+		assertTrue("atan2(" + y + ", " + x + "): " + actual + " vs " + expected,
+			Math.abs(actual - expected) <= FastTrig.ATAN2_MAX_ERROR_DEGREES);
+		assertTrue(actual >= -180f && actual <= 180f);
+	}
+
+	@Test
+	public void sinCosTableWithinBoundOverWholeSweep() {
+		float[][] sweeps = {
+			{ 0f, 360f }, { -90f, 360f }, { 0f, -360f }, { 135f, 270f }, { 150f, 240f },
+			{ 359f, 90f }, { 45f, -90f }, { 10f, 0.5f }, { 0f, 1e-3f }, { -720f, 720f },
+		};
+		FastTrig.SinCosTable table = new FastTrig.SinCosTable();
+		for (float[] sweep : sweeps) {
+			table.set(sweep[0], sweep[1]);
+			int samples = 200000;
+			for (int i = 0; i <= samples; i++) {
+				assertPoint(table, sweep[0], sweep[1], (float) i / samples);
+			}
+			// The table entries themselves, the ends and beyond (clamped)
+			int steps = Math.max(1, (int) Math.ceil(Math.abs(sweep[1]) / 360f * FastTrig.STEPS_PER_CIRCLE));
+			for (int i = 0; i <= steps; i++) {
+				assertPoint(table, sweep[0], sweep[1], (float) i / steps);
+			}
+			assertPoint(table, sweep[0], sweep[1], Math.nextUp(0f));
+			assertPoint(table, sweep[0], sweep[1], Math.nextAfter(1f, 0d));
+			assertClamped(table, sweep[0], sweep[1], -1f, 0f);
+			assertClamped(table, sweep[0], sweep[1], 2f, 1f);
+		}
+	}
+
+	@Test
+	public void sinCosTableScalesWithCenterAndRadius() {
+		FastTrig.SinCosTable table = new FastTrig.SinCosTable();
+		table.set(-90f, 360f);
+		PointF out = new PointF();
+		float radius = 250f;
+		for (int i = 0; i <= 1000; i++) {
+			float fraction = i / 1000f;
+			table.getPoint(fraction, 40f, -60f, radius, out);
+			double angle = Math.toRadians(-90d + 360d * fraction);
+			double error = Math.hypot(out.x - 40f - radius * Math.cos(angle), out.y + 60f - radius * Math.sin(angle));
+			// Plus float rounding of the center and the scaled offset
+			assertTrue(error <= radius * FastTrig.SIN_COS_MAX_ERROR + 1e-4);
+		}
+	}
+
+	private static void assertPoint(FastTrig.SinCosTable table, float start, float sweep, float fraction) {
+		PointF out = new PointF();
+		table.getPoint(fraction, 0f, 0f, 1f, out);
+		double angle = Math.toRadians(start + (double) sweep * fraction);
+		double error = Math.hypot(out.x - Math.cos(angle), out.y - Math.sin(angle));
+		assertTrue("sweep " + start + "+" + sweep + " at " + fraction + ": " + error,
+			error <= FastTrig.SIN_COS_MAX_ERROR);
+	}
+
+	private static void assertClamped(FastTrig.SinCosTable table, float start, float sweep, float fraction,
+		float clamped) {
+		PointF expected = new PointF();
+		PointF actual = new PointF();
+		table.getPoint(clamped, 0f, 0f, 1f, expected);
+		table.getPoint(fraction, 0f, 0f, 1f, actual);
+		assertEquals(expected.x, actual.x, 0f);
+		assertEquals(expected.y, actual.y, 0f);
+	}
+}
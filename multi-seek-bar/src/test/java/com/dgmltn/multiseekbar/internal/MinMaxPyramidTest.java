@@ -0,0 +1,144 @@
+package com.dgmltn.multiseekbar.internal;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks {@link MinMaxPyramid} against a brute force scan of the samples, as they grow.
+ */
+public class MinMaxPyramidTest {
+
+	private static final int MAX_SAMPLES = 20000;
+
+	private static class ArraySource implements MinMaxPyramid.Source {
+		final float[] samples;
+
+		ArraySource(float[] samples) {
+			this.samples = samples;
+		}
+
+		@Override
+		public void getMinMax(long from, long to, float[] out) {
+			assertTrue(from >= 0 && from < to && to <= samples.length);
+			float min = Float.MAX_VALUE;
+			float max = -Float.MAX_VALUE;
+			for (int i = (int) from; i < to; i++) {
+				min = Math.min(min, samples[i]);
+				max = Math.max(max, samples[i]);
+			}
+			out[0] = min;
+			out[1] = max;
+		}
+	}
+
+	@Test
+	public void matchesBruteForceWhileGrowing() {
+		Random random = new Random(7);
+		for (int trial = 0; trial < 20; trial++) {
+			ArraySource source = new ArraySource(randomSamples(random));
+			MinMaxPyramid pyramid = new MinMaxPyramid();
+			grow(random, source, pyramid, 0);
+
+			// And again from scratch, reusing the arrays
+			pyramid.clear();
+			assertEquals(0, pyramid.getLength());
+			assertEquals(0, pyramid.getLevelCount());
+			grow(random, source, pyramid, 0);
+		}
+	}
+
+	@Test
+	public void clampsRanges() {
+		Random random = new Random(11);
+		ArraySource source = new ArraySource(randomSamples(random));
+		MinMaxPyramid pyramid = new MinMaxPyramid();
+		float[] out = { 42f, 42f };
+		assertFalse(pyramid.getMinMax(source, 0, 10, out));
+
+		pyramid.extend(source, 1000);
+		assertFalse(pyramid.getMinMax(source, 1000, 2000, out));
+		assertFalse(pyramid.getMinMax(source, 10, 10, out));
+		assertFalse(pyramid.getMinMax(source, 20, 10, out));
+		assertEquals(42f, out[0], 0f);
+		assertEquals(42f, out[1], 0f);
+
+		assertQuery(source, pyramid, -50, 5000, 0, 1000);
+		assertQuery(source, pyramid, 999, 5000, 999, 1000);
+		// Shrinking is ignored
+		pyramid.extend(source, 10);
+		assertEquals(1000, pyramid.getLength());
+	}
+
+	/**
+	 * Appends chunks of random sizes, from single samples to several blocks, and checks
+	 * queries after each.
+	 */
+	private static void grow(Random random, ArraySource source, MinMaxPyramid pyramid, long length) {
+		float[] samples = source.samples;
+		while (length < samples.length) {
+			int chunk;
+			switch (random.nextInt(4)) {
+			case 0:
+				chunk = 1 + random.nextInt(3);
+				break;
+			case 1:
+				chunk = 1 + random.nextInt(MinMaxPyramid.BASE_BLOCK);
+				break;
+			default:
+				chunk = 1 + random.nextInt(MinMaxPyramid.BASE_BLOCK * 20);
+				break;
+			}
+			length = Math.min(samples.length, length + chunk);
+			pyramid.extend(source, length);
+			assertEquals(length, pyramid.getLength());
+
+			for (int q = 0; q < 50; q++) {
+				long from = random.nextInt((int) length);
+				long to = from + 1 + random.nextInt((int) (length - from));
+				if (q % 5 == 0) {
+					// Ending inside the partial last block
+					to = length;
+				}
+				else if (q % 5 == 1) {
+					from = 0;
+				}
+				else if (q % 5 == 2) {
+					// On block boundaries
+					from = from / MinMaxPyramid.BASE_BLOCK * MinMaxPyramid.BASE_BLOCK;
+					to = Math.max(from + 1, to / MinMaxPyramid.BASE_BLOCK * MinMaxPyramid.BASE_BLOCK);
+				}
+				assertQuery(source, pyramid, from, to, from, to);
+			}
+			assertQuery(source, pyramid, 0, length, 0, length);
+		}
+	}
+
+	private static void assertQuery(ArraySource source, MinMaxPyramid pyramid, long from, long to,
+		long clampedFrom, long clampedTo) {
+		float[] expected = new float[2];
+		float[] actual = new float[2];
+		source.getMinMax(clampedFrom, clampedTo, expected);
+		assertTrue(pyramid.getMinMax(source, from, to, actual));
+		String range = from + ".." + to + " of " + pyramid.getLength();
+		assertEquals(range, expected[0], actual[0], 0d);
+		assertEquals(range, expected[1], actual[1], 0d);
+	}
+
+	/**
+	 * Noise around a drifting level, so that extremes can be anywhere.
+	 */
+	private static float[] randomSamples(Random random) {
+		float[] samples = new float[1 + random.nextInt(MAX_SAMPLES)];
+		float level = 0f;
+		for (int i = 0; i < samples.length; i++) {
+			level += (float) random.nextGaussian() * 0.1f;
+			samples[i] = level + (float) random.nextGaussian();
+		}
+		return samples;
+	}
+}
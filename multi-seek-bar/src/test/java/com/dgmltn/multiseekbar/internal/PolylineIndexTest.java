@@ -0,0 +1,151 @@
+package com.dgmltn.multiseekbar.internal;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks {@link PolylineIndex} against projecting onto every segment.
+ */
+public class PolylineIndexTest {
+
+	@Test
+	public void matchesLinearScanOnSeveralContours() {
+		Random random = new Random(5);
+		PolylineIndex index = new PolylineIndex();
+		for (int trial = 0; trial < 300; trial++) {
+			int stride = 2 + random.nextInt(2);
+			int contourCount = 1 + random.nextInt(4);
+			int[] contourStarts = new int[contourCount];
+			int pointCount = 0;
+			int[] sizes = new int[contourCount];
+			for (int c = 0; c < contourCount; c++) {
+				contourStarts[c] = pointCount;
+				sizes[c] = 2 + random.nextInt(random.nextBoolean() ? 5 : 300);
+				pointCount += sizes[c];
+			}
+
+			// Each contour a random walk from its own corner of the field, so that the
+			// segments that would join them cross empty space
+			float[] points = new float[pointCount * stride];
+			float scale = random.nextBoolean() ? 1f : 1000f;
+			for (int c = 0; c < contourCount; c++) {
+				float x = random.nextFloat() * 100f * scale;
+				float y = random.nextFloat() * 100f * scale;
+				float step = (random.nextBoolean() ? 0.5f : 5f) * scale;
+				for (int i = contourStarts[c]; i < contourStarts[c] + sizes[c]; i++) {
+					points[i * stride] = x;
+					points[i * stride + 1] = y;
+					if (stride > 2) {
+						points[i * stride + 2] = Float.NaN;
+					}
+					// Now and then a zero length segment
+					if (random.nextInt(20) > 0) {
+						x += (float) random.nextGaussian() * step;
+						y += (float) random.nextGaussian() * step;
+					}
+				}
+			}
+			int segments = pointCount - 1;
+			boolean[] gaps = new boolean[segments];
+			for (int c = 1; c < contourCount; c++) {
+				gaps[contourStarts[c] - 1] = true;
+			}
+			index.build(points, stride, segments, contourStarts, contourCount);
+
+			for (int q = 0; q < 200; q++) {
+				float x;
+				float y;
+				switch (q % 4) {
+				case 0:
+					// Far off the grid
+					x = ((float) random.nextGaussian() * 1000f + 50f) * scale;
+					y = ((float) random.nextGaussian() * 1000f + 50f) * scale;
+					break;
+				case 1:
+					// Halfway along a gap, if there is one
+					if (contourCount > 1) {
+						int s = contourStarts[1 + random.nextInt(contourCount - 1)] - 1;
+						x = (points[s * stride] + points[(s + 1) * stride]) / 2f;
+						y = (points[s * stride + 1] + points[(s + 1) * stride + 1]) / 2f;
+						break;
+					}
+					// Fall through
+				default:
+					x = (random.nextFloat() * 120f - 10f) * scale;
+					y = (random.nextFloat() * 120f - 10f) * scale;
+					break;
+				}
+				assertNearest("trial " + trial + " at " + x + "," + y, index, points, stride, segments, gaps, x, y);
+			}
+		}
+	}
+
+	@Test
+	public void degeneratePolylines() {
+		PolylineIndex index = new PolylineIndex();
+		Random random = new Random(9);
+		float[][] polylines = {
+			{ 10f, 10f, 20f, 10f },
+			{ 5f, 5f, 5f, 5f, 5f, 5f },
+			{ 0f, 0f, 100f, 0f, 200f, 0f, 300f, 0f },
+			{ 0f, 0f, 0f, 100f, 0f, 50f, 0f, 300f },
+		};
+		for (float[] points : polylines) {
+			int segments = points.length / 2 - 1;
+			index.build(points, 2, segments);
+			for (int q = 0; q < 1000; q++) {
+				float x = random.nextFloat() * 600f - 150f;
+				float y = random.nextFloat() * 600f - 150f;
+				assertNearest(x + "," + y, index, points, 2, segments, new boolean[segments], x, y);
+			}
+		}
+
+		index.build(new float[0], 2, 0);
+		assertEquals(0f, index.findNearestPosition(1f, 2f), 0f);
+		assertEquals(Float.MAX_VALUE, index.getLastDistanceSquared(), 0f);
+	}
+
+	private static void assertNearest(String message, PolylineIndex index, float[] points, int stride,
+		int segments, boolean[] gaps, float x, float y) {
+		double best = Double.MAX_VALUE;
+		double scale = 0d;
+		for (int s = 0; s < segments; s++) {
+			if (!gaps[s]) {
+				best = Math.min(best, distance(points, stride, s, x, y));
+				scale = Math.max(scale, Math.abs(points[s * stride]) + Math.abs(points[s * stride + 1]));
+			}
+		}
+		// Float rounding, of the squared distances and of a segment index plus a fraction
+		double tolerance = 1e-4 * (scale + Math.abs(x) + Math.abs(y)) + 1e-3;
+
+		float position = index.findNearestPosition(x, y);
+		assertEquals(message, best, Math.sqrt(index.getLastDistanceSquared()), tolerance);
+
+		// The position is on a segment of the polyline, at that distance
+		int s = Math.min(segments - 1, (int) position);
+		float t = position - s;
+		assertTrue(message + ": position " + position, position >= 0f && t <= 1f);
+		assertTrue(message + ": on the gap after segment " + s, !gaps[s] || t == 0f);
+		int a = s * stride;
+		int b = a + stride;
+		double px = points[a] + t * (points[b] - points[a]);
+		double py = points[a + 1] + t * (points[b + 1] - points[a + 1]);
+		assertEquals(message, best, Math.hypot(px - x, py - y), tolerance);
+	}
+
+	private static double distance(float[] points, int stride, int s, float x, float y) {
+		int a = s * stride;
+		int b = a + stride;
+		double ax = points[a];
+		double ay = points[a + 1];
+		double dx = points[b] - ax;
+		double dy = points[b + 1] - ay;
+		double len2 = dx * dx + dy * dy;
+		double t = len2 > 0 ? Math.max(0, Math.min(1, ((x - ax) * dx + (y - ay) * dy) / len2)) : 0;
+		return Math.hypot(ax + t * dx - x, ay + t * dy - y);
+	}
+}
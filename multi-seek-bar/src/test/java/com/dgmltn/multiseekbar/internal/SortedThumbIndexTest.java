@@ -0,0 +1,105 @@
+package com.dgmltn.multiseekbar.internal;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks {@link SortedThumbIndex} against a linear scan, on a circle whose ends meet.
+ */
+public class SortedThumbIndexTest {
+
+	private static final float RADIUS = 100f;
+	private static final float MAX = 100f;
+	private static final float TOUCH_RADIUS = 30f;
+
+	private static final ThumbHitIndex.Filter ALL = new ThumbHitIndex.Filter() {
+		@Override
+		public boolean isHittable(int id) {
+			return true;
+		}
+	};
+
+	@Test
+	public void closedIndexFindsThumbAcrossTheSeam() {
+		// A touch just past 0 is nearest to the thumb just before max, at the other end of
+		// the sorted order
+		float[] values = { 10f, 50f, 99.8f };
+		float[] touch = pointAt(0.2f);
+		assertEquals(2, build(new SortedThumbIndex(true), values)
+			.findNearest(touch[0], touch[1], 0.2f, TOUCH_RADIUS, ALL));
+		// An open index stops at the thumb at 10, too far away
+		assertEquals(-1, build(new SortedThumbIndex(false), values)
+			.findNearest(touch[0], touch[1], 0.2f, TOUCH_RADIUS, ALL));
+
+		// And the other way around
+		values = new float[] { 0.5f, 50f };
+		touch = pointAt(99.7f);
+		assertEquals(0, build(new SortedThumbIndex(true), values)
+			.findNearest(touch[0], touch[1], 99.7f, TOUCH_RADIUS, ALL));
+	}
+
+	@Test
+	public void closedIndexMatchesLinearScan() {
+		Random random = new Random(3);
+		ThumbHitIndex.Filter someClickable = new ThumbHitIndex.Filter() {
+			@Override
+			public boolean isHittable(int id) {
+				return id % 5 != 3;
+			}
+		};
+		for (int trial = 0; trial < 20000; trial++) {
+			int n = random.nextInt(8);
+			float[] values = new float[n];
+			for (int i = 0; i < n; i++) {
+				// Many thumbs right at the ends
+				values[i] = random.nextInt(3) == 0 ? (random.nextBoolean() ? 0f : MAX) : random.nextFloat() * MAX;
+			}
+			SortedThumbIndex index = build(new SortedThumbIndex(true), values);
+
+			float value = random.nextFloat() * MAX;
+			float[] touch = pointAt(value);
+			assertEquals("trial " + trial, scan(values, touch, someClickable),
+				index.findNearest(touch[0], touch[1], value, TOUCH_RADIUS, someClickable));
+		}
+	}
+
+	private static SortedThumbIndex build(SortedThumbIndex index, float[] values) {
+		index.begin(values.length);
+		for (int i = 0; i < values.length; i++) {
+			float[] p = pointAt(values[i]);
+			index.put(i, values[i], p[0], p[1]);
+		}
+		index.end();
+		return index;
+	}
+
+	/**
+	 * The nearest hittable thumb within the touch radius, lowest id first on ties.
+	 */
+	private static int scan(float[] values, float[] touch, ThumbHitIndex.Filter filter) {
+		int best = -1;
+		float dmin = TOUCH_RADIUS * TOUCH_RADIUS;
+		for (int i = 0; i < values.length; i++) {
+			float d = distance2(pointAt(values[i]), touch);
+			if (filter.isHittable(i) && (d < dmin || (best == -1 && d <= dmin))) {
+				best = i;
+				dmin = d;
+			}
+		}
+		return best;
+	}
+
+	private static float[] pointAt(float value) {
+		double angle = value / MAX * 2 * Math.PI;
+		return new float[] { (float) (RADIUS * Math.cos(angle)), (float) (RADIUS * Math.sin(angle)) };
+	}
+
+	private static float distance2(float[] a, float[] b) {
+		float dx = a[0] - b[0];
+		float dy = a[1] - b[1];
+		return dx * dx + dy * dy;
+	}
+}
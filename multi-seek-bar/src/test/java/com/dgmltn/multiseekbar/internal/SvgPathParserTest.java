@@ -0,0 +1,192 @@
+package com.dgmltn.multiseekbar.internal;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks {@link SvgPathParser} through a {@link SvgPathParser.Sink} that records the commands.
+ */
+public class SvgPathParserTest {
+
+	/**
+	 * Records commands as text, e.g. "M1,1 L3,3 Z", and cubics as points for the arc tests.
+	 */
+	private static class RecordingSink implements SvgPathParser.Sink {
+		final StringBuilder text = new StringBuilder();
+		final List<float[]> cubics = new ArrayList<>();
+
+		@Override
+		public void moveTo(float x, float y) {
+			append('M', x, y);
+		}
+
+		@Override
+		public void lineTo(float x, float y) {
+			append('L', x, y);
+		}
+
+		@Override
+		public void quadTo(float x1, float y1, float x2, float y2) {
+			append('Q', x1, y1, x2, y2);
+		}
+
+		@Override
+		public void cubicTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+			append('C', x1, y1, x2, y2, x3, y3);
+			cubics.add(new float[] { x1, y1, x2, y2, x3, y3 });
+		}
+
+		@Override
+		public void close() {
+			append('Z');
+		}
+
+		private void append(char command, float... coords) {
+			if (text.length() > 0) {
+				text.append(' ');
+			}
+			text.append(command);
+			for (int i = 0; i < coords.length; i++) {
+				if (i > 0) {
+					text.append(i % 2 == 0 ? ' ' : ',');
+				}
+				float c = coords[i];
+				text.append(c == (int) c ? Integer.toString((int) c) : Float.toString(c));
+			}
+		}
+	}
+
+	private final SvgPathParser parser = new SvgPathParser();
+
+	private RecordingSink parse(String data) {
+		RecordingSink sink = new RecordingSink();
+		parser.parse(data, sink);
+		return sink;
+	}
+
+	private void assertParses(String expected, String data) {
+		assertEquals(data, expected, parse(data).text.toString());
+	}
+
+	private void assertError(int position, String data) {
+		try {
+			parse(data);
+			fail("no error for \"" + data + "\"");
+		}
+		catch (IllegalArgumentException e) {
+			assertTrue(data + ": " + e.getMessage(), e.getMessage().startsWith("bad path data at " + position + ":"));
+		}
+	}
+
+	@Test
+	public void relativeCommandsAndImplicitRepeats() {
+		// Coordinates after a moveto are linetos, relative after a relative one
+		assertParses("M1,1 L3,3", "m1 1 2 2");
+		assertParses("M1,1 L2,2", "M1 1 2 2");
+		assertParses("M1,1 L2,2 L3,3 L4,4", "m1 1 l1 1 1 1 1 1");
+		assertParses("M1,1 L3,1 L6,1 L6,5 L6,3", "M1 1 h2 3 v4 -2");
+		assertParses("M1,1 L3,1 L3,3", "M1 1 H3 V3");
+		assertParses("M1,2 C2,3 4,5 6,7 C7,8 9,10 11,12", "m1 2 c1 1 3 3 5 5 1 1 3 3 5 5");
+		assertParses("M1,2 Q2,3 4,5", "m1 2 q1 1 3 3");
+		// A second moveto is relative to the current point
+		assertParses("M1,1 L2,2 M5,5", "m1 1 1 1 m3 3");
+		assertParses("", "");
+		assertParses("", " \t\n, ");
+	}
+
+	@Test
+	public void compactNumbers() {
+		assertParses("M10,-20 L0.5,0.5", "M10-20L.5.5");
+		assertParses("M100,-3", "M1e2-3");
+		assertParses("M100,0.05", "M1E+2 .5e-1");
+		assertParses("M-0.5,1.5 L0.25,2", "M-.5+1.5L.25,2.");
+		assertParses("M1.5,0.5 L0.5,0.5", "M1.5.5L.5.5");
+		assertParses("M123456,0", "M0000123456,0");
+		assertParses("M0.001,1000", "M1e-3 1e3");
+		// A dangling exponent ends the number, and what follows isn't a command
+		assertError(2, "M1e 2 3");
+		assertError(2, "M1e");
+	}
+
+	@Test
+	public void arcFlagsWithoutSeparators() {
+		RecordingSink compact = parse("M0 0a10 10 0 1010 10");
+		RecordingSink spaced = parse("M0 0 a10,10 0 1 0 10,10");
+		assertEquals(spaced.text.toString(), compact.text.toString());
+		assertEquals(compact.cubics.size(), spaced.cubics.size());
+
+		// A zero radius makes a line
+		assertParses("M0,0 L10,0", "M0 0A0 5 0 0110 0");
+		assertError(14, "M0 0 a10 10 0 210 10");
+		assertError(16, "M0 0 a10 10 0 1 ");
+	}
+
+	@Test
+	public void largeArcIsSplitIntoQuarterTurns() {
+		// Radius 10 from (0,0) to (10,10), the long way round against the sweep direction: a
+		// quarter circle around (0,10), three times
+		RecordingSink sink = parse("M0 0a10 10 0 1010 10");
+		assertEquals(3, sink.cubics.size());
+		float[][] ends = { { -10f, 10f }, { 0f, 20f }, { 10f, 10f } };
+		float startX = 0f;
+		float startY = 0f;
+		for (int i = 0; i < 3; i++) {
+			float[] c = sink.cubics.get(i);
+			assertEquals(ends[i][0], c[4], 1e-4f);
+			assertEquals(ends[i][1], c[5], 1e-4f);
+			// The curve stays on the circle
+			for (int k = 1; k < 10; k++) {
+				float t = k / 10f;
+				float u = 1f - t;
+				float x = u * u * u * startX + 3 * u * u * t * c[0] + 3 * u * t * t * c[2] + t * t * t * c[4];
+				float y = u * u * u * startY + 3 * u * u * t * c[1] + 3 * u * t * t * c[3] + t * t * t * c[5];
+				assertEquals(10f, Math.hypot(x, y - 10f), 0.01f);
+			}
+			startX = c[4];
+			startY = c[5];
+		}
+		// Lands exactly, so that the next relative command starts from (10,10)
+		assertTrue(parse("M0 0a10 10 0 1010 10l1 1").text.toString().endsWith(" 10,10 L11,11"));
+	}
+
+	@Test
+	public void smoothCurvesReflectTheLastControlPoint() {
+		assertParses("M0,0 C1,1 2,1 3,0 C4,-1 5,-1 6,0", "M0 0 C1 1 2 1 3 0 S5 -1 6 0");
+		assertParses("M0,0 C1,1 2,1 3,0 C4,-1 5,-1 6,0", "M0 0 c1 1 2 1 3 0 s2 -1 3 0");
+		assertParses("M0,0 Q1,1 2,0 Q3,-1 4,0 Q5,1 6,0", "M0 0 Q1 1 2 0 T4 0 T6 0");
+		assertParses("M0,0 Q1,1 2,0 Q3,-1 4,0", "M0 0 q1 1 2 0 t2 0");
+		// After any other command, the first control point is the current point
+		assertParses("M0,0 L1,1 C1,1 2,2 3,3", "M0 0 L1 1 S2 2 3 3");
+		assertParses("M0,0 Q1,1 2,0 C2,0 3,1 4,0", "M0 0 Q1 1 2 0 S3 1 4 0");
+		assertParses("M0,0 C1,1 2,1 3,0 Q3,0 4,0", "M0 0 C1 1 2 1 3 0 T4 0");
+	}
+
+	@Test
+	public void closeResetsTheCurrentPoint() {
+		assertParses("M1,1 L2,1 Z L1,3", "M1 1 l1 0 z l0 2");
+		assertParses("M1,1 L5,5 Z M2,2", "M1 1 L5 5 z m1 1");
+		// And the control point for a following smooth curve
+		assertParses("M1,1 L5,5 Z C1,1 2,2 3,3", "M1 1 L5 5 Z S2 2 3 3");
+		assertParses("M1,1 L5,5 Z Z", "M1 1 L5 5 zZ");
+	}
+
+	@Test
+	public void errorPositions() {
+		assertError(0, "1 2");
+		assertError(0, "X");
+		assertError(6, "M1 2 L");
+		assertError(5, "M1 2 X3");
+		assertError(6, "M1 2 z3 4");
+		// Past the sign or point that didn't start a number
+		assertError(3, "M -");
+		assertError(4, "M1 .");
+		assertError(7, "M1 2 L3");
+		assertError(11, "M0 0 C1 1 2");
+	}
+}
@@ -0,0 +1,139 @@
+package com.dgmltn.multiseekbar.internal;
+
+import com.dgmltn.multiseekbar.ThumbView;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that listeners of the values a frame applies can cancel animations safely.
+ */
+public class ThumbAnimatorTest {
+
+	private static final long FRAME_NANOS = 16666667L;
+	private static final int MAX_FRAMES = 1000;
+
+	/**
+	 * Records what the animator applies, and cancels a thumb as soon as it comes to rest.
+	 */
+	private static class CancellingHost implements ThumbAnimator.Host {
+		ThumbAnimator animator;
+		final float[] values = new float[2];
+		final float[] targets = new float[2];
+		int cancelOnRest = -1;
+		int finished = 0;
+
+		@Override
+		public void beginFrame() {
+		}
+
+		@Override
+		public void setThumbValue(ThumbView thumb, double value) {
+		}
+
+		@Override
+		public void setVirtualThumbValue(int index, float value) {
+			values[index] = value;
+			if (index == cancelOnRest && value == targets[index]) {
+				animator.cancelVirtual(index);
+			}
+		}
+
+		@Override
+		public void endFrame() {
+		}
+
+		@Override
+		public void onAnimationsFinished() {
+			finished++;
+		}
+
+		@Override
+		public float getValueRange() {
+			return 100f;
+		}
+	}
+
+	private static ThumbAnimator createAnimator(CancellingHost host) {
+		host.animator = new ThumbAnimator(host) {
+			@Override
+			void postFrameCallback() {
+			}
+
+			@Override
+			void removeFrameCallback() {
+			}
+		};
+		return host.animator;
+	}
+
+	private static int runFrames(ThumbAnimator animator) {
+		int frames = 0;
+		while (animator.isRunning() && frames < MAX_FRAMES) {
+			animator.doFrame(++frames * FRAME_NANOS);
+		}
+		return frames;
+	}
+
+	@Test
+	public void cancellingTheLastSlotWhenItRestsKeepsTheOthersMoving() {
+		CancellingHost host = new CancellingHost();
+		ThumbAnimator animator = createAnimator(host);
+		host.targets[0] = 100f;
+		host.targets[1] = 50f;
+		// The shorter spring, in the last slot, rests first and cancels itself
+		host.cancelOnRest = 1;
+		animator.springVirtualTo(0, 0f, 100f);
+		animator.springVirtualTo(1, 0f, 50f);
+
+		assertTrue(runFrames(animator) < MAX_FRAMES);
+		assertEquals(100f, host.values[0], 0f);
+		assertEquals(50f, host.values[1], 0f);
+		assertFalse(animator.isRunning());
+		assertEquals(1, host.finished);
+	}
+
+	@Test
+	public void cancellingTheOnlyAnimationWhenItRests() {
+		CancellingHost host = new CancellingHost();
+		ThumbAnimator animator = createAnimator(host);
+		host.targets[0] = 100f;
+		host.cancelOnRest = 0;
+		animator.springVirtualTo(0, 0f, 100f);
+
+		assertTrue(runFrames(animator) < MAX_FRAMES);
+		assertEquals(100f, host.values[0], 0f);
+		assertFalse(animator.isRunning());
+		assertEquals(1, host.finished);
+	}
+
+	@Test
+	public void cancellingAnotherThumbDuringAFrame() {
+		CancellingHost host = new CancellingHost() {
+			@Override
+			public void setVirtualThumbValue(int index, float value) {
+				super.setVirtualThumbValue(index, value);
+				// Thumb 1, walked first, stops thumb 0 before its turn
+				if (index == 1) {
+					animator.cancelVirtual(0);
+				}
+			}
+		};
+		ThumbAnimator animator = createAnimator(host);
+		host.targets[1] = 50f;
+		animator.springVirtualTo(0, 0f, 100f);
+		animator.springVirtualTo(1, 0f, 50f);
+
+		animator.doFrame(FRAME_NANOS);
+		assertEquals(0f, host.values[0], 0f);
+		assertFalse(animator.isAnimatingVirtual(0));
+		assertTrue(animator.isAnimatingVirtual(1));
+
+		assertTrue(runFrames(animator) < MAX_FRAMES);
+		assertEquals(50f, host.values[1], 0f);
+		assertEquals(1, host.finished);
+	}
+}